@@ -0,0 +1,110 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Aug 14, 2017
+ * @disclaimer 	This code is free software; you can redistribute it and/or
+ * 				modify it under the terms of the GNU General Public License
+ * 				as published by the Free Software Foundation; either version 2
+ * 				of the License, or (at your option) any later version,
+ * 				provided that any use properly credits the author.
+ * 				This program is distributed in the hope that it will be useful,
+ * 				but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 				MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * 				GNU General Public License for more details at http://www.gnu.org *
+ */
+package bioLockJ.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import bioLockJ.BioLockJ;
+import bioLockJ.util.ConfigUtil;
+
+/**
+ * BenchmarkProject initializes the global BioLockJ props once per benchmark JVM so nodes and
+ * parser modules can be used without running ApplicationManager.  Props are read from the RDP
+ * config template (override with -Dbench.template=path) and then pointed at a temp project dir.
+ * Logging is set to WARN so log output does not skew the results.
+ */
+public class BenchmarkProject extends BioLockJ
+{
+	public static final String TEMPLATE_PROP = "bench.template";
+	private static final String DEFAULT_TEMPLATE = "resources" + File.separator + "config_templates"
+			+ File.separator + "rdpTemplate.properties";
+	private static File projectDir = null;
+
+	/**
+	 * Get the temp project dir.
+	 * @return
+	 */
+	public static File getProjectDir()
+	{
+		return projectDir;
+	}
+
+	/**
+	 * Build the temp project and initialize the global props.  Only the first call does any work.
+	 * @throws Exception
+	 */
+	public static synchronized void initialize() throws Exception
+	{
+		if( projectDir != null )
+		{
+			return;
+		}
+
+		final File dir = Files.createTempDirectory( "bioLockJ_bench" ).toFile();
+		final File inputDir = new File( dir, "input" );
+		final File rootDir = new File( dir, "root" );
+		inputDir.mkdirs();
+		rootDir.mkdirs();
+
+		final BufferedWriter writer = new BufferedWriter( new FileWriter( new File( inputDir, "sample.fasta" ) ) );
+		writer.write( ">read1\nACGTACGTACGT\n" );
+		writer.close();
+
+		System.setProperty( LOG_FILE, dir.getAbsolutePath() + File.separator + "bench.log" );
+
+		final Properties props = new Properties();
+		final InputStream in = new FileInputStream(
+				new File( System.getProperty( TEMPLATE_PROP, DEFAULT_TEMPLATE ) ) );
+		props.load( in );
+		in.close();
+
+		props.setProperty( PROJECT_NAME, "bench" );
+		props.setProperty( PROJECTS_DIR, dir.getAbsolutePath() );
+		props.setProperty( INPUT_DIRS, inputDir.getAbsolutePath() );
+		props.setProperty( CONTROL_RUN_ON_CLUSTER, "N" );
+		props.setProperty( CONTROL_RUN_CLASSIFIER, "N" );
+		props.setProperty( CONTROL_RUN_PARSER, "Y" );
+		props.setProperty( CONTROL_RAREFY_SEQS, "N" );
+		props.setProperty( EMAIL_SEND_NOTIFICATION, "N" );
+		props.setProperty( METADATA_FILE, "" );
+		props.setProperty( METADATA_DESCRIPTOR, "" );
+		props.setProperty( REPORT_ATTRIBUTES, "" );
+		props.setProperty( REPORT_TAXONOMY_LEVELS, "phylum,class,order,family,genus" );
+
+		final File propFile = new File( dir, "bench.properties" );
+		final OutputStream out = new FileOutputStream( propFile );
+		props.store( out, "BioLockJ benchmark project" );
+		out.close();
+
+		final ConfigUtil configUtil = new ConfigUtil( propFile );
+		configUtil.setProperty( ROOT_DIR, rootDir.getAbsolutePath() + File.separator );
+		initializeGlobalProps( configUtil );
+		LogManager.getRootLogger().setLevel( Level.WARN );
+
+		projectDir = dir;
+		Runtime.getRuntime().addShutdownHook( new Thread( () -> FileUtils.deleteQuietly( dir ) ) );
+	}
+}
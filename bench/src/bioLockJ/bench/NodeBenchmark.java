@@ -0,0 +1,203 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Aug 14, 2017
+ * @disclaimer 	This code is free software; you can redistribute it and/or
+ * 				modify it under the terms of the GNU General Public License
+ * 				as published by the Free Software Foundation; either version 2
+ * 				of the License, or (at your option) any later version,
+ * 				provided that any use properly credits the author.
+ * 				This program is distributed in the hope that it will be useful,
+ * 				but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 				MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * 				GNU General Public License for more details at http://www.gnu.org *
+ */
+package bioLockJ.bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import bioLockJ.module.parser.r16s.QiimeParser;
+import bioLockJ.node.OtuNode;
+import bioLockJ.node.r16s.QiimeNode;
+import bioLockJ.node.r16s.RdpNode;
+import bioLockJ.node.wgs.KrakenNode;
+import bioLockJ.node.wgs.MetaphlanNode;
+
+/**
+ * NodeBenchmark measures the per-line cost of building OtuNodes from classifier output, and the
+ * cost of merging per-read nodes into a per-sample node (ParserModule.addOtuNode).  Each
+ * operation processes numReads lines (numTaxa lines for MetaPhlAn & QIIME).  The QIIME otu_table
+ * benchmark runs QiimeParser.createOtuNodes() itself through BenchQiimeParser.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+public class NodeBenchmark
+{
+	private static final int RDP_THRESHOLD = 80;
+
+	@Param( { "10000" } )
+	public int numReads;
+
+	@Param( { "500" } )
+	public int numTaxa;
+
+	private List<String> krakenLines;
+	private List<OtuNode> mergeNodes;
+	private List<String> metaphlanLines;
+	private BenchQiimeParser qiimeParser;
+	private List<String> qiimeTaxa;
+	private List<String> rdpLines;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		BenchmarkProject.initialize();
+		krakenLines = SyntheticData.getKrakenLines( "sample_0", numReads, numTaxa );
+		metaphlanLines = SyntheticData.getMetaphlanLines( numTaxa );
+		rdpLines = SyntheticData.getRdpLines( "sample_0", numReads, numTaxa );
+		final File otuTable = new File( BenchmarkProject.getProjectDir(), "otu_table_L6.txt" );
+		FileUtils.writeLines( otuTable, SyntheticData.getQiimeOtuTableLines( 100, numTaxa ) );
+		qiimeParser = new BenchQiimeParser( otuTable );
+		qiimeTaxa = new ArrayList<>( numTaxa );
+		for( int i = 0; i < numTaxa; i++ )
+		{
+			qiimeTaxa.add( SyntheticData.getQiimeTaxa( i ) );
+		}
+
+		mergeNodes = new ArrayList<>( numReads );
+		for( final String line: krakenLines )
+		{
+			mergeNodes.add( new KrakenNode( line ) );
+		}
+	}
+
+	@Benchmark
+	public OtuNode krakenAddLine() throws Exception
+	{
+		final KrakenNode sampleNode = new KrakenNode();
+		for( final String line: krakenLines )
+		{
+			sampleNode.addLine( line );
+		}
+		return sampleNode;
+	}
+
+	@Benchmark
+	public void krakenNode( final Blackhole bh ) throws Exception
+	{
+		for( final String line: krakenLines )
+		{
+			bh.consume( new KrakenNode( line ) );
+		}
+	}
+
+	@Benchmark
+	public OtuNode mergeNode() throws Exception
+	{
+		final OtuNode sampleNode = new KrakenNode( krakenLines.get( 0 ) );
+		for( final OtuNode node: mergeNodes )
+		{
+			sampleNode.mergeNode( node );
+		}
+		return sampleNode;
+	}
+
+	@Benchmark
+	public void metaphlanNode( final Blackhole bh ) throws Exception
+	{
+		for( final String line: metaphlanLines )
+		{
+			bh.consume( new MetaphlanNode( line ) );
+		}
+	}
+
+	@Benchmark
+	public void qiimeNode( final Blackhole bh ) throws Exception
+	{
+		for( final String taxa: qiimeTaxa )
+		{
+			bh.consume( new QiimeNode( taxa, 10 ) );
+		}
+	}
+
+	/**
+	 * Runs QiimeParser.createOtuNodes() on the synthetic otu_table.
+	 */
+	@Benchmark
+	public QiimeParser qiimeOtuTable() throws Exception
+	{
+		qiimeParser.parse();
+		return qiimeParser;
+	}
+
+	@Benchmark
+	public OtuNode rdpAddLine() throws Exception
+	{
+		final RdpNode sampleNode = new RdpNode();
+		for( final String line: rdpLines )
+		{
+			if( RdpNode.parseScore( line ) >= RDP_THRESHOLD )
+			{
+				sampleNode.addLine( line );
+			}
+		}
+		return sampleNode;
+	}
+
+	@Benchmark
+	public void rdpNode( final Blackhole bh ) throws Exception
+	{
+		for( final String line: rdpLines )
+		{
+			bh.consume( new RdpNode( line ) );
+		}
+	}
+
+	/**
+	 * Exposes QiimeParser.createOtuNodes() for a single otu_table file.  QIIME IDs are used as
+	 * Sample IDs, so no QIIME mapping is needed.  Sample nodes are kept in the static ParserModule
+	 * map, so each call adds the table counts to the same nodes.
+	 */
+	public static class BenchQiimeParser extends QiimeParser
+	{
+		private final List<File> inputFiles;
+
+		public BenchQiimeParser( final File otuTable ) throws Exception
+		{
+			inputFiles = Arrays.asList( otuTable );
+			setOrderedSampleIDs( otuTable );
+		}
+
+		@Override
+		public List<File> getInputFiles()
+		{
+			return inputFiles;
+		}
+
+		public void parse() throws Exception
+		{
+			createOtuNodes();
+		}
+
+		@Override
+		protected String getSampleId( final String qiimeId )
+		{
+			return qiimeId;
+		}
+	}
+}
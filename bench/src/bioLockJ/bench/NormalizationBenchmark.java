@@ -0,0 +1,72 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Aug 14, 2017
+ * @disclaimer 	This code is free software; you can redistribute it and/or
+ * 				modify it under the terms of the GNU General Public License
+ * 				as published by the Free Software Foundation; either version 2
+ * 				of the License, or (at your option) any later version,
+ * 				provided that any use properly credits the author.
+ * 				This program is distributed in the hope that it will be useful,
+ * 				but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 				MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * 				GNU General Public License for more details at http://www.gnu.org *
+ */
+package bioLockJ.bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import bioLockJ.node.OtuWrapper;
+
+/**
+ * NormalizationBenchmark measures OtuWrapper on a dense taxa-as-columns count table: reading the
+ * raw counts, computing the normalized & logged values, and writing the log normalized table.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+public class NormalizationBenchmark
+{
+	@Param( { "100", "1000" } )
+	public int numSamples;
+
+	@Param( { "500" } )
+	public int numTaxa;
+
+	private File countTable;
+	private OtuWrapper wrapper;
+	private File outputFile;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		BenchmarkProject.initialize();
+		final String prefix = BenchmarkProject.getProjectDir().getAbsolutePath() + File.separator + "norm_"
+				+ numSamples + "_" + numTaxa;
+		countTable = new File( prefix + "_AsColumns.txt" );
+		outputFile = new File( prefix + "_LogNormal.txt" );
+		SyntheticData.writeTaxaCountTable( countTable, numSamples, numTaxa );
+		wrapper = new OtuWrapper( countTable, "e" );
+	}
+
+	@Benchmark
+	public OtuWrapper otuWrapper() throws Exception
+	{
+		return new OtuWrapper( countTable, "e" );
+	}
+
+	@Benchmark
+	public void writeNormalizedLoggedData() throws Exception
+	{
+		wrapper.writeNormalizedLoggedDataToFile( "SampleID", outputFile.getAbsolutePath() );
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Aug 14, 2017
+ * @disclaimer 	This code is free software; you can redistribute it and/or
+ * 				modify it under the terms of the GNU General Public License
+ * 				as published by the Free Software Foundation; either version 2
+ * 				of the License, or (at your option) any later version,
+ * 				provided that any use properly credits the author.
+ * 				This program is distributed in the hope that it will be useful,
+ * 				but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 				MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * 				GNU General Public License for more details at http://www.gnu.org *
+ */
+package bioLockJ.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import bioLockJ.module.parser.ParserModule;
+import bioLockJ.node.r16s.RdpNode;
+
+/**
+ * ParserBenchmark measures ParserModule.createTaxaCountTables(), which reads the sparse 3 col
+ * files, writes the taxa-as-columns count tables and builds the log normalized tables with
+ * OtuWrapper, plus rFormat() used to merge metadata into every output row.  RDP nodes for
+ * numSamples samples are loaded once per trial.  ParserModule keeps its nodes in a static map,
+ * so each numSamples value must run in its own fork (the JMH default).
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+public class ParserBenchmark
+{
+	@Param( { "50", "200" } )
+	public int numSamples;
+
+	@Param( { "2000" } )
+	public int numReadsPerSample;
+
+	@Param( { "500" } )
+	public int numTaxa;
+
+	private BenchParser parser;
+	private List<String> rFormatLines;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		BenchmarkProject.initialize();
+		parser = new BenchParser();
+		parser.setExecutorDir( BenchParser.class.getSimpleName() + "_" + numSamples, 0 );
+		parser.checkDependencies();
+		for( final String id: SyntheticData.getSampleIds( numSamples ) )
+		{
+			for( final String line: SyntheticData.getRdpLines( id, numReadsPerSample, numTaxa ) )
+			{
+				parser.addNode( id, new RdpNode( line ) );
+			}
+		}
+		parser.createSparseFiles();
+
+		rFormatLines = new ArrayList<>( numSamples );
+		for( final String id: SyntheticData.getSampleIds( numSamples ) )
+		{
+			rFormatLines.add( id + "\t\"rural\"\t#12\t4.5\tlow dose ## comment\t" + id.length() );
+		}
+	}
+
+	@Benchmark
+	public void createTaxaCountTables() throws Exception
+	{
+		parser.createCountTables();
+	}
+
+	@Benchmark
+	public void rFormat( final Blackhole bh ) throws Exception
+	{
+		for( final String line: rFormatLines )
+		{
+			bh.consume( BenchParser.format( line ) );
+		}
+	}
+
+	/**
+	 * Exposes the protected ParserModule methods.  Nodes are added by the benchmark instead of
+	 * being parsed from module input files.
+	 */
+	public static class BenchParser extends ParserModule
+	{
+		public static String format( final String line ) throws Exception
+		{
+			return rFormat( line, DELIM );
+		}
+
+		public void addNode( final String id, final RdpNode node ) throws Exception
+		{
+			addOtuNode( id, node );
+		}
+
+		public void createCountTables() throws Exception
+		{
+			createTaxaCountTables();
+		}
+
+		public void createSparseFiles() throws Exception
+		{
+			createTaxaSparseThreeColFiles();
+		}
+
+		@Override
+		protected void createOtuNodes() throws Exception
+		{
+		}
+	}
+}
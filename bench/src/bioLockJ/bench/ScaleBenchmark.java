@@ -0,0 +1,523 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Aug 14, 2017
+ * @disclaimer 	This code is free software; you can redistribute it and/or
+ * 				modify it under the terms of the GNU General Public License
+ * 				as published by the Free Software Foundation; either version 2
+ * 				of the License, or (at your option) any later version,
+ * 				provided that any use properly credits the author.
+ * 				This program is distributed in the hope that it will be useful,
+ * 				but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 				MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * 				GNU General Public License for more details at http://www.gnu.org *
+ */
+package bioLockJ.bench;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * ScaleBenchmark runs the whole pipeline on synthetic cohorts of numSamples x numReads to show
+ * how the Java modules scale.  For each cohort it generates FASTQ files, metadata, descriptor,
+ * primer file and a fake RDP classifier (an awk script), then runs ApplicationManager in a
+ * forked JVM with SeqTrimmer, Rarefier, RdpClassifier, RdpParser & RScriptBuilder enabled.
+ * Every 20th read is missing the primer so SeqTrimmer discards some reads.
+ * Rscript is replaced by a script that only creates the success flag, so only R script
+ * generation is measured.
+ *
+ * Per-module wall time, CPU, GC & peak heap are read from each project's _metrics.tsv and saved to
+ * scaling.tsv, and scaling_summary.txt reports the fitted exponent k (time ~ x^k) of each module
+ * vs # samples & vs # reads.  k near 1 is linear, k near 2 is quadratic.
+ *
+ * USAGE: ScaleBenchmark <OUTPUT_DIR> <NUM_SAMPLES_LIST> <NUM_READS_LIST>
+ * Example: ScaleBenchmark bench/scale 10,50,250 1000,5000
+ * Set -Dscale.xmx to change the heap of the forked JVM (default 4g).
+ */
+public class ScaleBenchmark
+{
+	private static final String FAKE_CLASSIFIER = "fakeRdp.sh";
+	private static final String FAKE_RSCRIPT = "fakeRscript.sh";
+	private static final String[] METRICS = { "wallMs", "cpuMs", "gcMs", "peakHeapBytes" };
+	private static final String PRIMER = "GTGCCAGCAGCCGCGGTAA";
+	private static final String PROJECT_PREFIX = "scale_";
+	private static final String XMX_PROP = "scale.xmx";
+
+	public static void main( final String[] args )
+	{
+		try
+		{
+			if( ( args == null ) || ( args.length != 3 ) )
+			{
+				System.out.println( "USAGE: ScaleBenchmark <OUTPUT_DIR> <NUM_SAMPLES_LIST> <NUM_READS_LIST>\n"
+						+ "Example: ScaleBenchmark bench/scale 10,50,250 1000,5000" );
+				System.exit( 1 );
+			}
+
+			final File outputDir = new File( args[ 0 ] ).getAbsoluteFile();
+			outputDir.mkdirs();
+			final List<Integer> sampleCounts = getIntList( args[ 1 ] );
+			final List<Integer> readCounts = getIntList( args[ 2 ] );
+
+			final List<Run> runs = new ArrayList<>();
+			for( final int numSamples: sampleCounts )
+			{
+				for( final int numReads: readCounts )
+				{
+					runs.add( runCohort( outputDir, numSamples, numReads ) );
+				}
+			}
+
+			writeResults( new File( outputDir, "scaling.tsv" ), runs );
+			writeSummary( new File( outputDir, "scaling_summary.txt" ), runs );
+			System.out.println( "Scaling report saved to: " + outputDir );
+		}
+		catch( final Exception ex )
+		{
+			ex.printStackTrace();
+			System.exit( 1 );
+		}
+	}
+
+	/**
+	 * Least squares slope of log(y) vs log(x).
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	private static double fitExponent( final List<Double> x, final List<Double> y )
+	{
+		double sx = 0;
+		double sy = 0;
+		double sxx = 0;
+		double sxy = 0;
+		final int n = x.size();
+		for( int i = 0; i < n; i++ )
+		{
+			final double lx = Math.log( x.get( i ) );
+			final double ly = Math.log( Math.max( 1.0, y.get( i ) ) );
+			sx += lx;
+			sy += ly;
+			sxx += lx * lx;
+			sxy += lx * ly;
+		}
+		return ( ( n * sxy ) - ( sx * sy ) ) / ( ( n * sxx ) - ( sx * sx ) );
+	}
+
+	/**
+	 * ApplicationManager logs errors instead of returning an exit code, so check the output.
+	 * @param file
+	 * @return
+	 * @throws Exception
+	 */
+	private static boolean hasErrors( final File file ) throws Exception
+	{
+		final BufferedReader reader = new BufferedReader( new FileReader( file ) );
+		try
+		{
+			for( String line = reader.readLine(); line != null; line = reader.readLine() )
+			{
+				if( line.contains( " ERROR - " ) )
+				{
+					return true;
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		return false;
+	}
+
+	private static List<Integer> getIntList( final String val )
+	{
+		final List<Integer> list = new ArrayList<>();
+		final StringTokenizer st = new StringTokenizer( val, "," );
+		while( st.hasMoreTokens() )
+		{
+			list.add( Integer.valueOf( st.nextToken().trim() ) );
+		}
+		return list;
+	}
+
+	/**
+	 * Module name without the executor index prefix: 2_RdpClassifier = RdpClassifier
+	 * @param executorDir
+	 * @return
+	 */
+	private static String getModuleName( final String executorDir )
+	{
+		final int index = executorDir.indexOf( "_" );
+		return ( index > -1 ) ? executorDir.substring( index + 1 ): executorDir;
+	}
+
+	/**
+	 * Sum the phases of each module from the project _metrics.tsv.  Peak heap is the max phase value.
+	 * @param file
+	 * @return
+	 * @throws Exception
+	 */
+	private static Map<String, Map<String, Double>> readMetrics( final File file ) throws Exception
+	{
+		final Map<String, Map<String, Double>> metrics = new LinkedHashMap<>();
+		final BufferedReader reader = new BufferedReader( new FileReader( file ) );
+		try
+		{
+			reader.readLine();
+			for( String line = reader.readLine(); line != null; line = reader.readLine() )
+			{
+				final String[] parts = line.split( "\t" );
+				if( ( parts.length != 4 ) || parts[ 1 ].equals( "total" ) )
+				{
+					continue;
+				}
+
+				final String module = getModuleName( parts[ 0 ] );
+				if( metrics.get( module ) == null )
+				{
+					metrics.put( module, new TreeMap<>() );
+				}
+
+				final Map<String, Double> moduleMetrics = metrics.get( module );
+				final double val = Double.parseDouble( parts[ 3 ] );
+				final Double prev = moduleMetrics.get( parts[ 2 ] );
+				if( prev == null )
+				{
+					moduleMetrics.put( parts[ 2 ], val );
+				}
+				else if( parts[ 2 ].equals( "peakHeapBytes" ) )
+				{
+					moduleMetrics.put( parts[ 2 ], Math.max( prev, val ) );
+				}
+				else
+				{
+					moduleMetrics.put( parts[ 2 ], prev + val );
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		return metrics;
+	}
+
+	/**
+	 * Generate the cohort, run ApplicationManager in a new JVM, and read the project metrics.
+	 * @param outputDir
+	 * @param numSamples
+	 * @param numReads
+	 * @return
+	 * @throws Exception
+	 */
+	private static Run runCohort( final File outputDir, final int numSamples, final int numReads ) throws Exception
+	{
+		final String name = PROJECT_PREFIX + numSamples + "x" + numReads;
+		final File cohortDir = new File( outputDir, name );
+		final File projectsDir = new File( cohortDir, "projects" );
+		projectsDir.mkdirs();
+		System.out.println( "Run cohort: " + numSamples + " samples x " + numReads + " reads" );
+
+		final File propFile = writeCohort( cohortDir, name, numSamples, numReads );
+		final List<String> cmd = new ArrayList<>();
+		cmd.add( System.getProperty( "java.home" ) + File.separator + "bin" + File.separator + "java" );
+		cmd.add( "-Xmx" + System.getProperty( XMX_PROP, "4g" ) );
+		cmd.add( "-cp" );
+		cmd.add( System.getProperty( "java.class.path" ) );
+		cmd.add( "bioLockJ.ApplicationManager" );
+		cmd.add( propFile.getAbsolutePath() );
+
+		final long start = System.currentTimeMillis();
+		final Process p = new ProcessBuilder( cmd ).redirectErrorStream( true )
+				.redirectOutput( new File( cohortDir, "stdout.log" ) ).start();
+		final int exitCode = p.waitFor();
+		final long wallMs = System.currentTimeMillis() - start;
+
+		File metricsFile = null;
+		for( final File dir: projectsDir.listFiles() )
+		{
+			final File f = new File( dir, name + "_metrics.tsv" );
+			if( dir.isDirectory() && f.exists() )
+			{
+				metricsFile = f;
+			}
+		}
+
+		if( ( exitCode != 0 ) || ( metricsFile == null ) || hasErrors( new File( cohortDir, "stdout.log" ) ) )
+		{
+			throw new Exception( "Cohort " + name + " failed (exit code " + exitCode + "), see: "
+					+ new File( cohortDir, "stdout.log" ).getAbsolutePath() );
+		}
+
+		final Run run = new Run( numSamples, numReads, wallMs, readMetrics( metricsFile ) );
+		System.out.println( "Done in " + wallMs + " ms: " + metricsFile.getAbsolutePath() );
+		return run;
+	}
+
+	/**
+	 * Write the per-module metrics of every run.
+	 * @param file
+	 * @param runs
+	 * @throws Exception
+	 */
+	private static void writeResults( final File file, final List<Run> runs ) throws Exception
+	{
+		final BufferedWriter writer = new BufferedWriter( new FileWriter( file ) );
+		try
+		{
+			writer.write( "numSamples\tnumReads\ttotalReads\tmodule" );
+			for( final String metric: METRICS )
+			{
+				writer.write( "\t" + metric );
+			}
+			writer.write( "\n" );
+
+			for( final Run run: runs )
+			{
+				for( final String module: run.metrics.keySet() )
+				{
+					writer.write( run.numSamples + "\t" + run.numReads + "\t" + ( (long) run.numSamples * run.numReads )
+							+ "\t" + module );
+					for( final String metric: METRICS )
+					{
+						final Double val = run.metrics.get( module ).get( metric );
+						writer.write( "\t" + ( ( val == null ) ? 0L: val.longValue() ) );
+					}
+					writer.write( "\n" );
+				}
+				writer.write( run.numSamples + "\t" + run.numReads + "\t" + ( (long) run.numSamples * run.numReads )
+						+ "\tTOTAL\t" + run.wallMs + "\t0\t0\t0\n" );
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * For each module, fit wall time vs # samples (one fit per # reads) and vs # reads (one fit per
+	 * # samples).
+	 * @param file
+	 * @param runs
+	 * @throws Exception
+	 */
+	private static void writeSummary( final File file, final List<Run> runs ) throws Exception
+	{
+		final TreeSet<String> modules = new TreeSet<>();
+		final TreeSet<Integer> sampleCounts = new TreeSet<>();
+		final TreeSet<Integer> readCounts = new TreeSet<>();
+		for( final Run run: runs )
+		{
+			modules.addAll( run.metrics.keySet() );
+			sampleCounts.add( run.numSamples );
+			readCounts.add( run.numReads );
+		}
+
+		final BufferedWriter writer = new BufferedWriter( new FileWriter( file ) );
+		try
+		{
+			writer.write( "Fitted exponent k of module wall time ~ x^k (1 = linear, 2 = quadratic)\n" );
+			for( final String module: modules )
+			{
+				writer.write( "\n" + module + "\n" );
+				if( sampleCounts.size() > 1 )
+				{
+					for( final Integer numReads: readCounts )
+					{
+						final List<Double> x = new ArrayList<>();
+						final List<Double> y = new ArrayList<>();
+						for( final Run run: runs )
+						{
+							if( ( run.numReads == numReads ) && ( run.metrics.get( module ) != null ) )
+							{
+								x.add( (double) run.numSamples );
+								y.add( run.metrics.get( module ).get( "wallMs" ) );
+							}
+						}
+						if( x.size() > 1 )
+						{
+							writer.write( String.format( "  vs # samples (%d reads/sample): k = %.2f\n", numReads,
+									fitExponent( x, y ) ) );
+						}
+					}
+				}
+				if( readCounts.size() > 1 )
+				{
+					for( final Integer numSamples: sampleCounts )
+					{
+						final List<Double> x = new ArrayList<>();
+						final List<Double> y = new ArrayList<>();
+						for( final Run run: runs )
+						{
+							if( ( run.numSamples == numSamples ) && ( run.metrics.get( module ) != null ) )
+							{
+								x.add( (double) run.numReads );
+								y.add( run.metrics.get( module ).get( "wallMs" ) );
+							}
+						}
+						if( x.size() > 1 )
+						{
+							writer.write( String.format( "  vs # reads/sample (%d samples): k = %.2f\n", numSamples,
+									fitExponent( x, y ) ) );
+						}
+					}
+				}
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Write input FASTQ files, metadata, descriptor, primer file, fake classifier, fake Rscript, and
+	 * the project config file.
+	 * @param cohortDir
+	 * @param name
+	 * @param numSamples
+	 * @param numReads
+	 * @return config file
+	 * @throws Exception
+	 */
+	private static File writeCohort( final File cohortDir, final String name, final int numSamples,
+			final int numReads ) throws Exception
+	{
+		final Random random = new Random( SyntheticData.SEED );
+		final File inputDir = new File( cohortDir, "input" );
+		inputDir.mkdirs();
+		final char[] bases = { 'A', 'C', 'G', 'T' };
+		final char[] seq = new char[ 150 ];
+		final StringBuffer qual = new StringBuffer();
+		for( int i = 0; i < ( PRIMER.length() + seq.length ); i++ )
+		{
+			qual.append( 'I' );
+		}
+
+		final List<String> ids = SyntheticData.getSampleIds( numSamples );
+		for( final String id: ids )
+		{
+			final BufferedWriter writer = new BufferedWriter( new FileWriter( new File( inputDir, id + ".fastq" ) ) );
+			for( int i = 0; i < numReads; i++ )
+			{
+				for( int j = 0; j < seq.length; j++ )
+				{
+					seq[ j ] = bases[ random.nextInt( 4 ) ];
+				}
+				final String primer = ( ( i % 20 ) == 19 ) ? "": PRIMER;
+				writer.write( "@" + id + "_" + i + "\n" + primer + new String( seq ) + "\n+\n"
+						+ qual.substring( PRIMER.length() - primer.length() ) + "\n" );
+			}
+			writer.close();
+		}
+
+		final File metadata = new File( cohortDir, "metadata.txt" );
+		final BufferedWriter metaWriter = new BufferedWriter( new FileWriter( metadata ) );
+		metaWriter.write( "SampleID\tgroup\tage\n" );
+		for( int i = 0; i < ids.size(); i++ )
+		{
+			metaWriter.write( ids.get( i ) + "\t" + ( ( ( i % 2 ) == 0 ) ? "case": "control" ) + "\t"
+					+ ( 20 + random.nextInt( 50 ) ) + "\n" );
+		}
+		metaWriter.close();
+
+		final File descriptor = new File( cohortDir, "descriptor.txt" );
+		SyntheticData.writeLines( descriptor, Arrays.asList( "name\ttype\tcomment",
+				"group\tbinary\tcase or control", "age\tcontinuous\tage in years" ) );
+
+		final File primers = new File( cohortDir, "primers.txt" );
+		SyntheticData.writeLines( primers, Arrays.asList( "# forward primer", PRIMER ) );
+
+		// Called as: fakeRdp.sh -jar fakeRdp.sh [params] -o <output> <input>
+		final File classifier = new File( cohortDir, FAKE_CLASSIFIER );
+		SyntheticData.writeLines( classifier, Arrays.asList( "#!/bin/bash",
+				"while [ $# -gt 1 ]; do [ \"$1\" == \"-o\" ] && out=$2; shift; done",
+				"awk 'BEGIN { srand( 42 ) } NR % 4 == 1 { g = int( rand() * rand() * 500 ); "
+						+ "printf \"%s\\t\\tRoot\\trootrank\\t1.0\\tBacteria\\tdomain\\t1.0\\tPhylum_%d\\tphylum\\t1.0"
+						+ "\\tClass_%d\\tclass\\t1.0\\tOrder_%d\\torder\\t1.0\\tFamily_%d\\tfamily\\t1.0"
+						+ "\\tGenus_%d\\tgenus\\t0.95\\n\", substr( $1, 2 ), g % 8, g % 16, g % 32, g % 64, g }' "
+						+ "$1 > $out" ) );
+		classifier.setExecutable( true );
+
+		final File rScript = new File( cohortDir, FAKE_RSCRIPT );
+		// report.r creates report.r_SUCCESS when it starts, the fake just does the same
+		SyntheticData.writeLines( rScript, Arrays.asList( "#!/bin/bash", "touch $1_SUCCESS" ) );
+		rScript.setExecutable( true );
+
+		final Properties props = new Properties();
+		final InputStream in = new FileInputStream( new File( System.getProperty( BenchmarkProject.TEMPLATE_PROP,
+				"resources" + File.separator + "config_templates" + File.separator + "rdpTemplate.properties" ) ) );
+		props.load( in );
+		in.close();
+
+		props.setProperty( "project.name", name );
+		props.setProperty( "project.rootDir", new File( cohortDir, "projects" ).getAbsolutePath() );
+		props.setProperty( "input.dirs", inputDir.getAbsolutePath() );
+		props.setProperty( "input.trimSuffix", "" );
+		props.setProperty( "input.trimSeqPath", primers.getAbsolutePath() );
+		props.setProperty( "input.keepSeqsMissingPrimer", "N" );
+		props.setProperty( "input.rarefyMinNumSeqs", "1" );
+		props.setProperty( "input.rarefyMaxNumSeqs", String.valueOf( Math.max( 1, numReads / 2 ) ) );
+		props.setProperty( "control.runOnCluster", "N" );
+		props.setProperty( "control.trimSeqs", "Y" );
+		props.setProperty( "control.rarefySeqs", "Y" );
+		props.setProperty( "control.runClassifier", "Y" );
+		props.setProperty( "control.runParser", "Y" );
+		props.setProperty( "control.run_rScript", "Y" );
+		props.setProperty( "metadata.file", metadata.getAbsolutePath() );
+		props.setProperty( "metadata.descriptor", descriptor.getAbsolutePath() );
+		props.setProperty( "report.attributes", "group,age" );
+		props.setProperty( "email.sendNotification", "N" );
+		props.setProperty( "classifier.cacheDir", "" );
+		props.setProperty( "exe.classifier", classifier.getAbsolutePath() );
+		props.setProperty( "exe.classifierParams", "" );
+		props.setProperty( "exe.java", classifier.getAbsolutePath() );
+		props.setProperty( "exe.rScript", rScript.getAbsolutePath() );
+
+		final File propFile = new File( cohortDir, name + ".properties" );
+		final OutputStream out = new FileOutputStream( propFile );
+		props.store( out, "BioLockJ scale benchmark: " + numSamples + " samples x " + numReads + " reads" );
+		out.close();
+		return propFile;
+	}
+
+	/**
+	 * Metrics of one cohort.
+	 */
+	private static class Run
+	{
+		private final Map<String, Map<String, Double>> metrics;
+		private final int numReads;
+		private final int numSamples;
+		private final long wallMs;
+
+		Run( final int numSamples, final int numReads, final long wallMs,
+				final Map<String, Map<String, Double>> metrics )
+		{
+			this.numSamples = numSamples;
+			this.numReads = numReads;
+			this.wallMs = wallMs;
+			this.metrics = metrics;
+		}
+	}
+}
@@ -0,0 +1,223 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Aug 14, 2017
+ * @disclaimer 	This code is free software; you can redistribute it and/or
+ * 				modify it under the terms of the GNU General Public License
+ * 				as published by the Free Software Foundation; either version 2
+ * 				of the License, or (at your option) any later version,
+ * 				provided that any use properly credits the author.
+ * 				This program is distributed in the hope that it will be useful,
+ * 				but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 				MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * 				GNU General Public License for more details at http://www.gnu.org *
+ */
+package bioLockJ.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * SyntheticData generates classifier output in the formats read by the BioLockJ parsers.
+ * Each generator is seeded so every run produces the same lines.  Reads are assigned to
+ * numTaxa genera with a skewed distribution so a few taxa are common and most are rare, as in
+ * real samples.  Higher levels are derived from the genus index so lineages are consistent.
+ */
+public class SyntheticData
+{
+	public static final long SEED = 42L;
+	private static final String[] LEVELS = { "phylum", "class", "order", "family", "genus" };
+	private static final String[] PREFIXES = { "p__", "c__", "o__", "f__", "g__" };
+	private static final int[] WIDTHS = { 8, 16, 32, 64, Integer.MAX_VALUE };
+
+	/**
+	 * Kraken output translated with kraken-translate --mpa-format: readId, taxa path.
+	 * @param sampleId
+	 * @param numReads
+	 * @param numTaxa
+	 * @return
+	 */
+	public static List<String> getKrakenLines( final String sampleId, final int numReads, final int numTaxa )
+	{
+		final Random random = new Random( SEED );
+		final List<String> lines = new ArrayList<>( numReads );
+		for( int i = 0; i < numReads; i++ )
+		{
+			lines.add( sampleId + "_" + i + "\td__Bacteria|" + getPath( nextTaxa( random, numTaxa ), "|" ) );
+		}
+		return lines;
+	}
+
+	/**
+	 * MetaPhlAn rel_ab_w_read_stats output: taxa path, rel abundance, coverage, avg length, count.
+	 * @param numTaxa
+	 * @return
+	 */
+	public static List<String> getMetaphlanLines( final int numTaxa )
+	{
+		final Random random = new Random( SEED );
+		final List<String> lines = new ArrayList<>( numTaxa );
+		for( int i = 0; i < numTaxa; i++ )
+		{
+			lines.add( "k__Bacteria|" + getPath( i, "|" ) + "\t" + ( random.nextInt( 10000 ) / 100.0 ) + "\t"
+					+ random.nextDouble() + "\t" + ( 100 + random.nextInt( 50 ) ) + "\t" + ( 1 + random.nextInt( 5000 ) ) );
+		}
+		return lines;
+	}
+
+	/**
+	 * QIIME otu_table.txt (converted from biom): 2 header lines, then taxa followed by one count
+	 * per sample.  Most cells are zero, as in real OTU tables.
+	 * @param numSamples
+	 * @param numTaxa
+	 * @return
+	 */
+	public static List<String> getQiimeOtuTableLines( final int numSamples, final int numTaxa )
+	{
+		final Random random = new Random( SEED );
+		final List<String> lines = new ArrayList<>( numTaxa + 2 );
+		final StringBuffer header = new StringBuffer( "#OTU ID" );
+		for( final String id: getSampleIds( numSamples ) )
+		{
+			header.append( "\t" + id );
+		}
+		lines.add( "# Constructed from biom file" );
+		lines.add( header.toString() );
+
+		for( int i = 0; i < numTaxa; i++ )
+		{
+			final StringBuffer sb = new StringBuffer( getQiimeTaxa( i ) );
+			for( int j = 0; j < numSamples; j++ )
+			{
+				sb.append( "\t" + ( ( random.nextInt( 4 ) == 0 ) ? random.nextInt( 500 ) + ".0": "0.0" ) );
+			}
+			lines.add( sb.toString() );
+		}
+		return lines;
+	}
+
+	/**
+	 * QIIME taxa string for the given genus index.
+	 * @param taxa
+	 * @return
+	 */
+	public static String getQiimeTaxa( final int taxa )
+	{
+		return "k__Bacteria;" + getPath( taxa, ";" );
+	}
+
+	/**
+	 * RDP fixrank output: readId, then name, rank & score for each level from rootrank to genus.
+	 * @param sampleId
+	 * @param numReads
+	 * @param numTaxa
+	 * @return
+	 */
+	public static List<String> getRdpLines( final String sampleId, final int numReads, final int numTaxa )
+	{
+		final Random random = new Random( SEED );
+		final List<String> lines = new ArrayList<>( numReads );
+		for( int i = 0; i < numReads; i++ )
+		{
+			final int taxa = nextTaxa( random, numTaxa );
+			final StringBuffer sb = new StringBuffer( sampleId + "_" + i + "\t\tRoot\trootrank\t1.0\tBacteria\tdomain\t1.0" );
+			for( int j = 0; j < LEVELS.length; j++ )
+			{
+				sb.append( "\t" + getName( taxa, j ) + "\t" + LEVELS[ j ] + "\t" );
+				sb.append( ( random.nextInt( 3 ) == 0 ) ? "1.0": "0." + ( 50 + random.nextInt( 50 ) ) );
+			}
+			lines.add( sb.toString() );
+		}
+		return lines;
+	}
+
+	/**
+	 * Get sample IDs: sample_0, sample_1, ...
+	 * @param numSamples
+	 * @return
+	 */
+	public static List<String> getSampleIds( final int numSamples )
+	{
+		final List<String> ids = new ArrayList<>( numSamples );
+		for( int i = 0; i < numSamples; i++ )
+		{
+			ids.add( "sample_" + i );
+		}
+		return ids;
+	}
+
+	/**
+	 * Taxa-as-columns count table (the OtuWrapper input format): header of taxa names, then one
+	 * row of counts per sample.
+	 * @param file
+	 * @param numSamples
+	 * @param numTaxa
+	 * @throws Exception
+	 */
+	public static void writeTaxaCountTable( final File file, final int numSamples, final int numTaxa )
+			throws Exception
+	{
+		final Random random = new Random( SEED );
+		final BufferedWriter writer = new BufferedWriter( new FileWriter( file ) );
+		writer.write( "SampleID" );
+		for( int i = 0; i < numTaxa; i++ )
+		{
+			writer.write( "\t" + getName( i, LEVELS.length - 1 ) );
+		}
+
+		for( final String id: getSampleIds( numSamples ) )
+		{
+			writer.write( "\n" + id );
+			for( int i = 0; i < numTaxa; i++ )
+			{
+				writer.write( "\t" + random.nextInt( 1000 ) );
+			}
+		}
+		writer.close();
+	}
+
+	/**
+	 * Write the lines to a file.
+	 * @param file
+	 * @param lines
+	 * @throws Exception
+	 */
+	public static void writeLines( final File file, final List<String> lines ) throws Exception
+	{
+		final BufferedWriter writer = new BufferedWriter( new FileWriter( file ) );
+		for( final String line: lines )
+		{
+			writer.write( line + "\n" );
+		}
+		writer.close();
+	}
+
+	private static String getName( final int taxa, final int level )
+	{
+		final String name = LEVELS[ level ].substring( 0, 1 ).toUpperCase() + LEVELS[ level ].substring( 1 );
+		return name + "_" + ( taxa % WIDTHS[ level ] );
+	}
+
+	private static String getPath( final int taxa, final String delim )
+	{
+		final StringBuffer sb = new StringBuffer();
+		for( int j = 0; j < LEVELS.length; j++ )
+		{
+			sb.append( ( ( j == 0 ) ? "": delim ) + PREFIXES[ j ] + getName( taxa, j ) );
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Pick a genus index skewed toward low numbers.
+	 */
+	private static int nextTaxa( final Random random, final int numTaxa )
+	{
+		return random.nextInt( random.nextInt( numTaxa ) + 1 );
+	}
+}
@@ -15,14 +15,22 @@
  */
 package bioLockJ;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
@@ -47,8 +55,10 @@ import bioLockJ.module.preProcessor.PairedSeqMerger;
 import bioLockJ.module.preProcessor.Rarefier;
 import bioLockJ.module.preProcessor.SeqTrimmer;
 import bioLockJ.util.ConfigUtil;
+import bioLockJ.util.LogUtil;
 import bioLockJ.util.MailUtil;
 import bioLockJ.util.MetadataUtil;
+import bioLockJ.util.MetricsUtil;
 import bioLockJ.util.ProcessUtil;
 
 /**
@@ -57,11 +67,15 @@ import bioLockJ.util.ProcessUtil;
 public class ApplicationManager extends BioLockJ
 {
 	private static final HashMap<String, String> classifierMap = new HashMap<>();
+	private static final Set<String> failedScripts = new LinkedHashSet<>();
 	private static final List<File> failures = new ArrayList<>();
 	private static Logger log = null;
 	private static final HashMap<String, String> parserMap = new HashMap<>();
 	private static int pollCounter = 0;
 	private static final int pollTime = 60;
+	private static final Map<File, Integer> retryCounts = new HashMap<>();
+	private static final List<String> retries = new ArrayList<>();
+	private static final Map<File, Long> retryTimes = new HashMap<>();
 	private static final List<String> runTimes = new ArrayList<>();
 	private static final long startTime = System.currentTimeMillis();
 	private static String statusMsg = "";
@@ -126,11 +140,39 @@ public class ApplicationManager extends BioLockJ
 		}
 		finally
 		{
+			try
+			{
+				if( ( config != null ) && ( config.getMetaUtil() != null ) )
+				{
+					config.getMetaUtil().writePendingChanges();
+				}
+			}
+			catch( final Exception ex )
+			{
+				log.error( "Error occurred saving metadata! ", ex );
+			}
+
+			try
+			{
+				if( log != null )
+				{
+					MetricsUtil.writeReport();
+				}
+			}
+			catch( final Exception ex )
+			{
+				log.error( "Error occurred saving metrics! ", ex );
+			}
+
+			// summary must be logged before the flush so it is in the log file attached to the email
+			final String summary = sendEmail ? getSummary(): null;
+			LogUtil.flush();
+
 			try
 			{
 				if( sendEmail )
 				{
-					MailUtil.getMailUtil().sendEmailNotification( getSummary() );
+					MailUtil.getMailUtil().sendEmailNotification( summary );
 				}
 			}
 			catch( final Exception ex )
@@ -138,6 +180,8 @@ public class ApplicationManager extends BioLockJ
 				ex.printStackTrace();
 				log.error( "Error occurred sending email! ", ex );
 			}
+
+			LogUtil.shutdown();
 		}
 	}
 
@@ -190,6 +234,7 @@ public class ApplicationManager extends BioLockJ
 		configUtil.setProperty( LOG_FILE, logFileName );
 		configUtil.setProperty( ROOT_DIR, projectDir );
 		log = LoggerFactory.getLogger( ApplicationManager.class );
+		LogUtil.initialize();
 		initializeGlobalProps( configUtil );
 		initializeMaps();
 		try
@@ -297,31 +342,44 @@ public class ApplicationManager extends BioLockJ
 	 */
 	private static void executeAndWaitForScriptsIfAny( final Module module ) throws Exception
 	{
+		MetricsUtil.startPhase( module.getExecutorDir().getName(), MetricsUtil.PHASE_EXECUTE );
 		module.executeProjectFile();
 		if( module.hasScripts() )
 		{
+			MetricsUtil.startPhase( module.getExecutorDir().getName(), MetricsUtil.PHASE_SCRIPT_WAIT );
 			executeCHMOD( module.getScriptDir() );
 			executeFile( module.getMainScript() );
 			pollAndSpin( module.getScriptFiles(), module.getMainScript() );
 		}
+		MetricsUtil.endPhase();
 	}
 
 	/**
-	 * Execute the chmod param to make the new bash scripts executable.
+	 * Scripts are created executable by BashScriptUtil, so the chmod param is only an optional
+	 * override.  If configured, it is run once for all of the files in the script dir.
 	 * @param scriptDir
 	 * @throws Exception
 	 */
 	private static void executeCHMOD( final File scriptDir ) throws Exception
 	{
+		if( ( chmod == null ) || chmod.isEmpty() )
+		{
+			return;
+		}
 
-		final File[] listOfFiles = scriptDir.listFiles();
-		for( final File file: listOfFiles )
+		final StringBuffer paths = new StringBuffer();
+		for( final File file: scriptDir.listFiles() )
 		{
 			if( !file.getName().startsWith( "." ) )
 			{
-				ProcessUtil.submit( getArgs( chmod, file.getAbsolutePath() ) );
+				paths.append( " " + file.getAbsolutePath() );
 			}
 		}
+
+		if( paths.length() > 0 )
+		{
+			ProcessUtil.submit( getArgs( chmod, paths.toString() ) );
+		}
 	}
 
 	/**
@@ -348,7 +406,8 @@ public class ApplicationManager extends BioLockJ
 
 		log.info( "Executing Script: " + script.getName() );
 
-		ProcessUtil.submit( cmd );
+		// failed subscripts are found by their failure flags in pollAndSpin(), so the exit code is not checked
+		ProcessUtil.submit( cmd, ( scriptTimeoutMinutes == null ) ? 0L: scriptTimeoutMinutes * 60L, false );
 	}
 
 	/**
@@ -505,6 +564,31 @@ public class ApplicationManager extends BioLockJ
 				sb.append( runTimeOutput + "\n" );
 				log.info( runTimeOutput );
 			}
+			if( !retries.isEmpty() || !failedScripts.isEmpty() )
+			{
+				sb.append( LOG_SPACER + "\n" );
+				log.info( LOG_SPACER );
+			}
+			for( final String retry: retries )
+			{
+				sb.append( retry + "\n" );
+				log.info( retry );
+			}
+			for( final String script: failedScripts )
+			{
+				final String msg = "FAILED" + ( ( numRetries > 0 ) ? ( " after " + numRetries + " retries" ): "" )
+						+ ": " + script;
+				sb.append( msg + "\n" );
+				log.info( msg );
+			}
+			final String metrics = MetricsUtil.getSummary();
+			if( !metrics.isEmpty() )
+			{
+				sb.append( LOG_SPACER + "\n" );
+				sb.append( metrics );
+				log.info( LOG_SPACER );
+				log.info( "Performance Metrics:\n" + metrics );
+			}
 			final String totalRuntime = getRunTime( "Total Runtime", startTime );
 			sb.append( LOG_SPACER + "\n" );
 			sb.append( totalRuntime + "\n" );
@@ -536,6 +620,7 @@ public class ApplicationManager extends BioLockJ
 	/**
 	 * Poll checks the Module's script dir for flag files indicating either
 	 * SUCCESS or FAILURE.  Output message to log indicating num pass/fail.
+	 * Failed scripts are retried up to script.numRetries times.
 	 * Exit if failures found and exitOnFailure flag set to Y.
 	 *
 	 * @param scriptFiles
@@ -548,6 +633,7 @@ public class ApplicationManager extends BioLockJ
 		File failure = null;
 		int numSuccess = 0;
 		int numFailed = 0;
+		int numRetrying = 0;
 		for( final File f: scriptFiles )
 		{
 			final File testSuccess = new File( f.getAbsolutePath() + SCRIPT_SUCCEEDED );
@@ -561,22 +647,33 @@ public class ApplicationManager extends BioLockJ
 				final File testFailure = new File( f.getAbsolutePath() + SCRIPT_FAILED );
 				if( testFailure.exists() )
 				{
-					failure = testFailure;
-					numFailed++;
+					if( retry( f ) )
+					{
+						numRetrying++;
+					}
+					else
+					{
+						failure = testFailure;
+						failedScripts.add( f.getName() );
+						numFailed++;
+					}
 				}
 			}
 		}
 
 		final int numScripts = scriptFiles.size();
 
+		// When running locally with retries, the main script fails if any subscript failed,
+		// so only the subscript flags are checked.
 		final File mainFailed = new File( mainScript.getAbsolutePath() + SCRIPT_FAILED );
-		if( mainFailed.exists() )
+		final boolean checkMain = runOnCluster || ( numRetries == 0 );
+		if( checkMain && mainFailed.exists() )
 		{
 			failure = mainFailed;
 		}
 
 		final String logMsg = mainScript.getName() + " Status (Total=" + numScripts + "): Success=" + numSuccess
-				+ "; Failure=" + numFailed;
+				+ "; Failure=" + numFailed + ( ( numRetrying > 0 ) ? ( "; Retrying=" + numRetrying ): "" );
 
 		if( !statusMsg.equals( logMsg ) )
 		{
@@ -588,7 +685,7 @@ public class ApplicationManager extends BioLockJ
 			log.info( logMsg );
 		}
 
-		if( mainFailed.exists() || ( exitOnError && ( failure != null ) && failure.exists() ) )
+		if( ( checkMain && mainFailed.exists() ) || ( exitOnError && ( failure != null ) && failure.exists() ) )
 		{
 			throw new Exception( "SCRIPT FAILED: " + failure.getAbsolutePath() );
 		}
@@ -596,6 +693,144 @@ public class ApplicationManager extends BioLockJ
 		return ( numSuccess + numFailed ) == numScripts;
 	}
 
+	/**
+	 * Remove the failure indicator files written to the module failures dir by the script.
+	 * The script lines are: touch [failPath][failMsg]_FAIL_exitCode_$exitCode
+	 * @param script
+	 * @throws Exception
+	 */
+	private static void removeFailureFlags( final File script ) throws Exception
+	{
+		final String exitCodeFlag = SCRIPT_FAILED + "_" + EXIT_CODE + "_";
+		final Set<String> prefixes = new HashSet<>();
+		File failureDir = null;
+		final BufferedReader reader = new BufferedReader( new FileReader( script ) );
+		String line;
+		while( ( line = reader.readLine() ) != null )
+		{
+			line = line.trim();
+			if( line.startsWith( "touch " ) && line.contains( exitCodeFlag ) )
+			{
+				final String prefix = line.substring( 6, line.indexOf( exitCodeFlag ) + exitCodeFlag.length() );
+				failureDir = new File( prefix ).getParentFile();
+				prefixes.add( prefix );
+			}
+		}
+		reader.close();
+
+		if( ( failureDir == null ) || !failureDir.exists() )
+		{
+			return;
+		}
+
+		for( final File flag: failureDir.listFiles() )
+		{
+			for( final String prefix: prefixes )
+			{
+				if( flag.getAbsolutePath().startsWith( prefix ) )
+				{
+					flag.delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove the flags left by the failed script and submit it again.  If cluster.retryParams
+	 * is configured, it replaces the cluster.params line (to request more memory or threads).
+	 * @param script
+	 * @param attempt
+	 * @throws Exception
+	 */
+	private static void resubmit( final File script, final int attempt ) throws Exception
+	{
+		for( final File flag: script.getParentFile().listFiles() )
+		{
+			if( flag.getName().startsWith( script.getName() + SCRIPT_FAILED ) )
+			{
+				flag.delete();
+			}
+		}
+
+		removeFailureFlags( script );
+
+		if( runOnCluster && ( clusterRetryParams != null ) && !clusterRetryParams.isEmpty() )
+		{
+			setRetryParams( script );
+		}
+
+		final String msg = "Retry #" + attempt + ": " + script.getName();
+		retries.add( msg );
+		log.warn( msg );
+
+		if( runOnCluster )
+		{
+			ProcessUtil.submit( getArgs( clusterCommand, script.getAbsolutePath() ) );
+		}
+		else
+		{
+			executeFile( script );
+		}
+	}
+
+	/**
+	 * Check if a failed script should be retried.  The first time a failure is found, the retry
+	 * is scheduled after script.retryBackoffSeconds, doubled for each previous retry of the script.
+	 * Once the backoff has passed, the script is resubmitted.
+	 * @param script
+	 * @return TRUE if the script has been, or will be, retried
+	 * @throws Exception
+	 */
+	private static boolean retry( final File script ) throws Exception
+	{
+		final int numAttempts = retryCounts.containsKey( script ) ? retryCounts.get( script ): 0;
+		if( numAttempts >= numRetries )
+		{
+			return false;
+		}
+
+		final long now = System.currentTimeMillis();
+		if( !retryTimes.containsKey( script ) )
+		{
+			final long backoff = retryBackoffSeconds * ( 1L << numAttempts );
+			retryTimes.put( script, now + ( backoff * 1000 ) );
+			log.warn( script.getName() + " failed - retry #" + ( numAttempts + 1 ) + " of " + numRetries + " in "
+					+ backoff + " seconds" );
+		}
+		else if( now >= retryTimes.get( script ) )
+		{
+			retryTimes.remove( script );
+			retryCounts.put( script, numAttempts + 1 );
+			resubmit( script, numAttempts + 1 );
+		}
+
+		return true;
+	}
+
+	/**
+	 * Replace the cluster.params line in the script with cluster.retryParams.
+	 * @param script
+	 * @throws Exception
+	 */
+	private static void setRetryParams( final File script ) throws Exception
+	{
+		final List<String> lines = new ArrayList<>();
+		final BufferedReader reader = new BufferedReader( new FileReader( script ) );
+		String line;
+		while( ( line = reader.readLine() ) != null )
+		{
+			lines.add( line.equals( clusterParams ) ? clusterRetryParams: line );
+		}
+		reader.close();
+
+		final BufferedWriter writer = new BufferedWriter( new FileWriter( script ) );
+		for( final String scriptLine: lines )
+		{
+			writer.write( scriptLine + "\n" );
+		}
+		writer.close();
+	}
+
 	/**
 	 * This method calls poll to check status of scripts and then sleeps for pollTime seconds.
 	 * @param scripts
@@ -628,8 +863,10 @@ public class ApplicationManager extends BioLockJ
 
 		for( final Module e: executors )
 		{
+			MetricsUtil.startPhase( e.getExecutorDir().getName(), MetricsUtil.PHASE_CHECK_DEPENDENCIES );
 			e.checkDependencies();
 		}
+		MetricsUtil.endPhase();
 
 		for( final Module e: executors )
 		{
@@ -642,6 +879,10 @@ public class ApplicationManager extends BioLockJ
 			log.info( "FINISHED " + e.getClass().getSimpleName() );
 			log.info( LOG_SPACER );
 			runTimes.add( getRunTime( e.getClass().getSimpleName(), startTime ) );
+			MetricsUtil.count( MetricsUtil.BYTES_WRITTEN, FileUtils.sizeOfDirectory( e.getExecutorDir() ) );
+
+			// write metadata columns added by the module now, so they are saved even if a later module fails
+			config.getMetaUtil().writePendingChanges();
 		}
 
 		for( final Module e: executors )
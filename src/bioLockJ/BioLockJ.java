@@ -19,16 +19,20 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.FileReader;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringTokenizer;
 import java.util.zip.GZIPInputStream;
+import org.apache.commons.io.input.CountingInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import bioLockJ.util.AutoTuneUtil;
 import bioLockJ.util.ConfigUtil;
+import bioLockJ.util.MetricsUtil;
+import bioLockJ.util.ProgressTracker;
 
 /**
  * This class populates attributes corresponding to properties from ConfigUtil
@@ -38,12 +42,16 @@ public abstract class BioLockJ extends Constants
 {
 	protected static boolean addGenusFirstInitialToSpecies = false;
 	protected static boolean addGenusNameToSpecies = false;
+	protected static boolean batchByFileSize = false;
 	protected static int batchSize = 0;
 	protected static String chmod = null;
 	protected static String classifierType = null;
+	protected static String clusterArrayIndexVar = null;
+	protected static String clusterArraySwitch = null;
 	protected static String clusterCommand = null;
 	protected static List<String> clusterModules = null;
 	protected static String clusterParams = null;
+	protected static String clusterRetryParams = null;
 	protected static String commentChar = null;
 	protected static ConfigUtil config = null;
 	protected static boolean copyInputDirs = false;
@@ -66,11 +74,14 @@ public abstract class BioLockJ extends Constants
 	protected static String logBase = null;
 	protected static boolean mergeOtuTables = false;
 	protected static boolean mergePairs = false;
+	protected static boolean nativeBiom = false;
 	protected static String nullChar = null;
+	protected static int numRetries = 0;
 	protected static int numThreads = 0;
 	protected static boolean pickOtus = false;
 	protected static boolean preProcess = false;
 	protected static String qiimePickOtuScript = "";
+	protected static int retryBackoffSeconds = 0;
 	protected static Integer rarefyingMax = null;
 	protected static Integer rarefyingMin = null;
 	protected static boolean rarefySeqs = false;
@@ -84,6 +95,7 @@ public abstract class BioLockJ extends Constants
 	protected static boolean runParser = false;
 	protected static boolean runRscript = false;
 	protected static String rvReadSuffix = null;
+	protected static Integer scriptTimeoutMinutes = null;
 	protected static boolean sendEmail = false;
 	protected static List<String> taxonomyLevels = null;
 	protected static boolean trimSeqs = false;
@@ -121,17 +133,31 @@ public abstract class BioLockJ extends Constants
 		demultiplex = requireBoolean( INPUT_DEMULTIPLEX );
 
 		classifierType = requireString( PROJECT_CLASSIFIER_TYPE ).toUpperCase();
-		chmod = requireString( SCRIPT_CHMOD_COMMAND );
+		chmod = getString( SCRIPT_CHMOD_COMMAND );
 		emptySpaceDelim = requireString( REPORT_EMPTY_SPACE_DELIM );
 
-		numThreads = requirePositiveInteger( SCRIPT_NUM_THREADS );
-		batchSize = requirePositiveInteger( SCRIPT_BATCH_SIZE );
+		batchByFileSize = getBoolean( SCRIPT_BATCH_BY_FILE_SIZE );
 		rarefyingMax = getPositiveInteger( INPUT_RAREFYING_MAX );
 		rarefyingMin = getNonNegativeInteger( INPUT_RAREFYING_MIN );
+		scriptTimeoutMinutes = getPositiveInteger( SCRIPT_TIMEOUT_MINUTES );
+
+		final Integer retries = getNonNegativeInteger( SCRIPT_NUM_RETRIES );
+		numRetries = ( retries == null ) ? 0: retries;
+		if( numRetries > 0 )
+		{
+			retryBackoffSeconds = requirePositiveInteger( SCRIPT_RETRY_BACKOFF_SECONDS );
+		}
 
 		taxonomyLevels = requireList( REPORT_TAXONOMY_LEVELS );
 		inputDirs = requireExistingDirectories( INPUT_DIRS );
 
+		if( getBoolean( SCRIPT_AUTO_TUNE ) )
+		{
+			AutoTuneUtil.tune();
+		}
+		numThreads = requirePositiveInteger( SCRIPT_NUM_THREADS );
+		batchSize = requirePositiveInteger( SCRIPT_BATCH_SIZE );
+
 		nullChar = getString( METADATA_NULL_VALUE );
 		commentChar = getString( METADATA_COMMENT );
 		inputTrimPrefix = getString( INPUT_TRIM_PREFIX );
@@ -141,6 +167,16 @@ public abstract class BioLockJ extends Constants
 		clusterModules = getList( CLUSTER_MODULES );
 		ignoreInputFiles = getList( INPUT_IGNORE_FILES );
 
+		clusterArraySwitch = getString( CLUSTER_ARRAY_SWITCH );
+		if( ( clusterArraySwitch != null ) && clusterArraySwitch.isEmpty() )
+		{
+			clusterArraySwitch = null;
+		}
+		if( clusterArraySwitch != null )
+		{
+			clusterArrayIndexVar = requireString( CLUSTER_ARRAY_INDEX_VAR );
+		}
+
 		isQiime = ( classifierType.equals( QIIME ) );
 		
 		if( runOnCluster )
@@ -148,6 +184,7 @@ public abstract class BioLockJ extends Constants
 			clusterCommand = requireString( CLUSTER_BATCH_COMMAND );
 			clusterParams = requireString( CLUSTER_PARAMS );
 			clusterModules = getList( CLUSTER_MODULES );
+			clusterRetryParams = getString( CLUSTER_RETRY_PARAMS );
 			verifyClusterParams();
 		}
 
@@ -189,6 +226,11 @@ public abstract class BioLockJ extends Constants
 				qiimePickOtuScript = requireString( QIIME_PICK_OTU_SCRIPT );
 			}
 		}
+
+		if( isQiime )
+		{
+			nativeBiom = getBoolean( QIIME_NATIVE_BIOM );
+		}
 	
 	}
 	
@@ -246,16 +288,45 @@ public abstract class BioLockJ extends Constants
 	}
 
 	/**
-	 * Get a BufferedReader for standard text file or gzipped file.
+	 * Get optional boolean from prop file, return FALSE if undefined.
+	 * @param propertyName
+	 * @return
+	 * @throws Exception
+	 */
+	protected static boolean getBoolean( final String propertyName ) throws Exception
+	{
+		final String val = config.getAProperty( propertyName );
+		if( ( val == null ) || val.trim().isEmpty() )
+		{
+			return false;
+		}
+
+		return requireBoolean( propertyName );
+	}
+
+	/**
+	 * Get a BufferedReader for standard text file or gzipped file.  If a ProgressTracker is running,
+	 * the bytes read from the file are counted.
 	 * @param file
 	 * @return
 	 * @throws Exception
 	 */
 	protected static BufferedReader getFileReader( final File file ) throws Exception
 	{
-		return file.getName().toLowerCase().endsWith( ".gz" )
-				? new BufferedReader( new InputStreamReader( new GZIPInputStream( new FileInputStream( file ) ) ) )
-				: new BufferedReader( new FileReader( file ) );
+		MetricsUtil.count( MetricsUtil.FILES_READ, 1L );
+		MetricsUtil.count( MetricsUtil.BYTES_READ, file.length() );
+		MetricsUtil.record( MetricsUtil.FILE_SIZE, file.length() );
+		InputStream in = new FileInputStream( file );
+		final ProgressTracker tracker = ProgressTracker.getCurrent();
+		if( tracker != null )
+		{
+			final CountingInputStream counter = new CountingInputStream( in );
+			tracker.track( counter );
+			in = counter;
+		}
+
+		return new BufferedReader( new InputStreamReader(
+				file.getName().toLowerCase().endsWith( ".gz" ) ? new GZIPInputStream( in ): in ) );
 	}
 
 	/**
@@ -662,18 +733,19 @@ public abstract class BioLockJ extends Constants
 	}
 
 	/**
-	 * Validate cluster params num threads matches, numThreads defined in prop file.
+	 * Get the # processors requested in the cluster params.
 	 * Format for UNCC HPC Cluster: #PBS -l procs=1,mem=8GB
-	 * @throws Exception
+	 * @param params
+	 * @return null if params do not set # processors
 	 */
-	private static void verifyClusterParams() throws Exception
+	protected static Integer getClusterNumProcs( final String params )
 	{
-		if( !requireBoolean( CLUSTER_VALIDATE_PARAMS ) )
+		if( params == null )
 		{
-			return;
+			return null;
 		}
 
-		final StringTokenizer st = new StringTokenizer( clusterParams, "," );
+		final StringTokenizer st = new StringTokenizer( params, "," );
 		while( st.hasMoreTokens() )
 		{
 			String token = st.nextToken();
@@ -685,18 +757,33 @@ public abstract class BioLockJ extends Constants
 					token = pToken.nextToken().trim();
 					if( !token.contains( CLUSTER_NUM_PROCESSORS ) ) // only check right size of "="
 					{
-						final int numClusterProcs = Integer.valueOf( token );
-						if( numClusterProcs != numThreads )
-						{
-							throw new Exception( "Inconsistant config values. " + SCRIPT_NUM_THREADS + "=" + numThreads
-									+ "; " + CLUSTER_PARAMS + "=" + clusterParams + " (#" + CLUSTER_NUM_PROCESSORS + "="
-									+ numClusterProcs + ")" );
-						}
-						break;
+						return Integer.valueOf( token );
 					}
 				}
 			}
 		}
+		return null;
+	}
+
+	/**
+	 * Validate cluster params num threads matches, numThreads defined in prop file.
+	 * Format for UNCC HPC Cluster: #PBS -l procs=1,mem=8GB
+	 * @throws Exception
+	 */
+	private static void verifyClusterParams() throws Exception
+	{
+		if( !requireBoolean( CLUSTER_VALIDATE_PARAMS ) )
+		{
+			return;
+		}
+
+		final Integer numClusterProcs = getClusterNumProcs( clusterParams );
+		if( ( numClusterProcs != null ) && ( numClusterProcs != numThreads ) )
+		{
+			throw new Exception( "Inconsistant config values. " + SCRIPT_NUM_THREADS + "=" + numThreads + "; "
+					+ CLUSTER_PARAMS + "=" + clusterParams + " (#" + CLUSTER_NUM_PROCESSORS + "=" + numClusterProcs
+					+ ")" );
+		}
 	}
 
 	/**
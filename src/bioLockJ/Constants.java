@@ -23,6 +23,7 @@ public abstract class Constants
 {
 	public static final String DEFAULT_META_ID = "SampleId"; 
 	public static final String ALPHA_DIVERSITY_TABLE = "alphaDiversity.txt";
+	public static final String ARRAY_SCRIPT = "array";
 	public static final int ATT_TYPE_INDEX = 0;
 
 	public static final String BARCODE_SEQUENCE = "BarcodeSequence";
@@ -33,10 +34,15 @@ public abstract class Constants
 	public static final String CLASS = "class";
 	public static final String CLASS_DELIM = "c__";
 	public static final String CLASS_REPORT = "_class_reported.tsv";
+	public static final String CLASSIFIER_CACHE_DIR = "classifier.cacheDir";
+	public static final String CLASSIFIER_CACHE_MAX_GB = "classifier.cacheMaxSizeGB";
+	public static final String CLUSTER_ARRAY_INDEX_VAR = "cluster.arrayIndexVar";
+	public static final String CLUSTER_ARRAY_SWITCH = "cluster.arraySwitch";
 	public static final String CLUSTER_BATCH_COMMAND = "cluster.batchCommand";
 	public static final String CLUSTER_MODULES = "cluster.modules";
 	public static final String CLUSTER_NUM_PROCESSORS = "procs";
 	public static final String CLUSTER_PARAMS = "cluster.params";
+	public static final String CLUSTER_RETRY_PARAMS = "cluster.retryParams";
 	public static final String CLUSTER_VALIDATE_PARAMS = "cluster.validateParams";
 	public static final String COMBINED_FNA = "combined_seqs.fna";
 	public static final String CONTINUOUS = "CONTINUOUS";
@@ -109,6 +115,8 @@ public abstract class Constants
 	public static final String KRAKEN_DATABASE = "kraken.db";
 	public static final String KRAKEN_DELIM = "\\|";
 	public static final String KRAKEN_FILE = "_kraken.txt";
+	public static final String KRAKEN_REPORT_MODE = "kraken.reportMode";
+	public static final String KRAKEN_SHARED_DB_DIR = "kraken.sharedDbDir";
 
 	public static final String LINKER_PRIMER_SEQUENCE = "LinkerPrimerSequence";
 	public static final String LOG_E = "e";
@@ -128,6 +136,7 @@ public abstract class Constants
 	public static final String METADATA_FILE = "metadata.file";
 	public static final String METADATA_NULL_VALUE = "metadata.nullValue";
 	public static final String METAPHLAN = "METAPHLAN";
+	public static final String METAPHLAN_BOWTIE2_DIR = "metaphlan.bowtie2Dir";
 	public static final String METAPHLAN_CLASS = "c";
 	public static final String METAPHLAN_DELIM = "\\|";
 	public static final String METAPHLAN_DOMAIN = "k";
@@ -150,6 +159,7 @@ public abstract class Constants
 	public static final String OTU_ID = "#OTU ID";
 	public static final String OTU_SUMMARY_FILE = "otuSummary.txt";
 	public static final String OTU_TABLE = "otu_table.biom";
+	public static final String OTU_TABLE_JSON = "otu_table.json";
 	public static final String OTU_TABLE_PREFIX = "otu_table_L";
 
 	public static final String P_VALS = "pValues";
@@ -161,6 +171,7 @@ public abstract class Constants
 	public static final String PROJECT_COPY_FILES = "project.copyInputFiles";
 	public static final String PROJECT_DELETE_TEMP_FILES = "project.deleteTempFiles";
 	public static final String PROJECT_NAME = "project.name";
+	public static final String PROJECT_PROGRESS_SECONDS = "project.progressSeconds";
 	public static final String PROJECTS_DIR = "project.rootDir";
 
 	public static final String QIIME = "QIIME";
@@ -172,6 +183,7 @@ public abstract class Constants
 	public static final String QIIME_ID = "#SampleID";
 	public static final String QIIME_MAPPING = "qiimeMapping.txt";
 	public static final String QIIME_MERGE_OTU_TABLES = "qiime.mergeOtuTables";
+	public static final String QIIME_NATIVE_BIOM = "qiime.nativeBiom";
 	public static final String QIIME_PICK_OTU_SCRIPT = "qiime.pickOtuScript";
 	public static final String QIIME_PICK_OTUS = "qiime.pickOtus";
 	public static final String QIIME_PREPROCESS = "qiime.preprocessInput";
@@ -191,6 +203,7 @@ public abstract class Constants
 	public static final String R_SQUARED = "rSquared";
 	public static final String RAW_COUNT = "_RawCount";
 	public static final String RDP = "RDP";
+	public static final String RDP_BATCH_MODE = "rdp.batchMode";
 	public static final String RDP_THRESHOLD_SCORE = "rdp.minThresholdScore";
 	public static final String RELATIVE_ABUNDANCE = "Relative Abundance";
 	public static final String REP_SET = "rep_set";
@@ -208,21 +221,28 @@ public abstract class Constants
 	public static final String SAMPLE_SIZE = "sampleSize";
 	public static final String SCRIPT_ADD_ALPHA_DIVERSITY = "add_alpha_to_mapping_file.py -m ";
 	public static final String SCRIPT_ADD_LABELS = "add_qiime_labels.py -n 1 -i ";
+	public static final String SCRIPT_AUTO_TUNE = "script.autoTune";
+	public static final String SCRIPT_BATCH_BY_FILE_SIZE = "script.batchByFileSize";
 	public static final String SCRIPT_BATCH_SIZE = "script.batchSize";
 	public static final String SCRIPT_CALC_ALPHA_DIVERSITY = "alpha_diversity.py -i ";
 	public static final String SCRIPT_CHMOD_COMMAND = "script.chmodCommand";
+	public static final String SCRIPT_CONVERT_BIOM = "biom convert -i ";
 	public static final String SCRIPT_EXIT_ON_ERROR = "script.exitOnError";
 	public static final String SCRIPT_FAILED = "_FAIL";
 	public static final String SCRIPT_FILTER_OTUS = "filter_otus_from_otu_table.py -i ";
+	public static final String SCRIPT_NUM_RETRIES = "script.numRetries";
 	public static final String SCRIPT_NUM_THREADS = "script.numThreads";
 	public static final String SCRIPT_PICK_CLOSED_REF_OTUS = "pick_closed_reference_otus.py";
 	public static final String SCRIPT_PICK_DE_NOVO_OTUS = "pick_de_novo_otus.py";
 	public static final String SCRIPT_PICK_OPEN_REF_OTUS = "pick_open_reference_otus.py";
 	public static final String SCRIPT_PRINT_CONFIG = "print_qiime_config.py -t";
+	public static final String SCRIPT_RETRY_BACKOFF_SECONDS = "script.retryBackoffSeconds";
 	public static final String SCRIPT_SUCCEEDED = "_SUCCESS";
 	public static final String SCRIPT_SUMMARIZE_BIOM = "biom summarize-table -i ";
 	public static final String SCRIPT_SUMMARIZE_TAXA = "summarize_taxa.py -a -i ";
+	public static final String SCRIPT_TIMEOUT_MINUTES = "script.timeoutMinutes";
 	public static final String SCRIPT_VALIDATE_MAPPING = "validate_mapping_file.py -p -b -m ";
+	public static final String SHEBANG = "#!/bin/bash\n";
 	public static final String SLIMM = "SLIMM";
 	public static final String SLIMM_CLASS_DELIM = "class";
 	public static final String SLIMM_DATABASE = "slimm.db";
@@ -232,7 +252,9 @@ public abstract class Constants
 	public static final String SLIMM_ORDER_DELIM = "order";
 	public static final String SLIMM_PHYLUM_DELIM = "phylum";
 	public static final String SLIMM_REF_GENOME_INDEX = "slimm.refGenomeIndex";
+	public static final String SLIMM_SCRATCH_DIR = "slimm.scratchDir";
 	public static final String SLIMM_SPECIES_DELIM = "species";
+	public static final String SLIMM_STREAM_ALIGNMENTS = "slimm.streamAlignments";
 	public static final String SPECIES = "species";
 	public static final String SPECIES_DELIM = "s__";
 	public static final String SPECIES_REPORT = "_species_reported.tsv";
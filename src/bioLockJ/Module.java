@@ -28,6 +28,9 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.IOFileFilter;
 import org.apache.commons.io.filefilter.TrueFileFilter;
 import bioLockJ.util.BashScriptUtil;
+import bioLockJ.util.LogUtil;
+import bioLockJ.util.MetricsUtil;
+import bioLockJ.util.ProgressTracker;
 
 /**
  * Superclass for executors (classifiers, parsers, & batching utils).
@@ -66,17 +69,24 @@ public abstract class Module extends BioLockJ
 		return false;
 	}
 
-	private static int countNumReads( final File f ) throws Exception
+	private static int countNumReads( final File f, final ProgressTracker progress ) throws Exception
 	{
+		final int linesPerRead = isFastA() ? 2: 4;
 		int count = 0;
 		final BufferedReader r = getFileReader( f );
 		for( String line = r.readLine(); line != null; line = r.readLine() )
 		{
-			count++;
+			if( ( ++count % linesPerRead ) == 0 )
+			{
+				progress.addRecords( 1 );
+			}
 		}
 		r.close();
 
-		return ( count / ( isFastA() ? 2: 4 ) );
+		final int numReads = count / linesPerRead;
+		MetricsUtil.count( MetricsUtil.READS_PROCESSED, numReads );
+		MetricsUtil.record( MetricsUtil.READS_PER_FILE, numReads );
+		return numReads;
 	}
 
 	public void addScriptFile( final File f )
@@ -325,10 +335,11 @@ public abstract class Module extends BioLockJ
 	protected Map<File, File> getPairedReads( final List<File> files ) throws Exception
 	{
 		info( "Calling getPairedReads for " + count( files ) + " files " );
+		final String logKey = getClass().getSimpleName() + " getPairedReads";
 		final Map<File, File> map = new HashMap<>();
 		for( final File fwRead: files )
 		{
-			info( "getPairedReads fwRead: " + fwRead );
+			LogUtil.info( logKey, logKey + " fwRead: " + fwRead );
 			if( !isForwardRead( fwRead.getAbsolutePath() ) )
 			{
 				continue;
@@ -354,6 +365,7 @@ public abstract class Module extends BioLockJ
 				warn( "PAIRED_READS=TRUE - UNPAIRED FORWARD READ FOUND = " + fwRead.getAbsolutePath() );
 			}
 		}
+		LogUtil.summarize( logKey );
 
 		return map;
 	}
@@ -412,19 +424,28 @@ public abstract class Module extends BioLockJ
 			info( "Counting # reads/sample for " + numFiles + " files" );
 		}
 
+		final List<File> fwFiles = new ArrayList<>();
 		for( final File f: files )
 		{
-			if( !isForwardRead( f.getName() ) )
+			if( isForwardRead( f.getName() ) )
 			{
-				continue;
+				fwFiles.add( f );
 			}
+		}
 
-			final int count = countNumReads( f );
+		final String logKey = getClass().getSimpleName() + " Num Reads";
+		final ProgressTracker progress = ProgressTracker.start( "Count reads", fwFiles );
+		for( final File f: fwFiles )
+		{
+			final int count = countNumReads( f, progress );
 
-			info( "Num Reads (File Name: " + f.getName() + "): key[" + trimSampleID( f.getName() ) + "] = " + count );
+			LogUtil.info( logKey, logKey + " (File Name: " + f.getName() + "): key[" + trimSampleID( f.getName() )
+					+ "] = " + count );
 
 			readsPerSample.put( trimSampleID( f.getName() ), count );
 		}
+		progress.finish();
+		LogUtil.summarize( logKey );
 
 		config.getMetaUtil().addColumnToMetadata( this, NUM_READS, readsPerSample, targetDir );
 	}
@@ -443,6 +464,7 @@ public abstract class Module extends BioLockJ
 	{
 		final List<File> returnDirs = getInputDirs( dir );
 		final Set<String> fileNames = new HashSet<>();
+		final String logKey = getClass().getSimpleName() + " INPUT FILE";
 		int index = 1;
 		for( final File inDir: returnDirs )
 		{
@@ -459,7 +481,7 @@ public abstract class Module extends BioLockJ
 				{
 					validateFileNames( fileNames, f );
 					fileNames.add( f.getName() );
-					info( "INPUT FILE[" + index++ + "] = " + f.getAbsolutePath() );
+					LogUtil.info( logKey, logKey + "[" + index++ + "] = " + f.getAbsolutePath() );
 					inputFiles.add( f );
 				}
 				else
@@ -468,6 +490,7 @@ public abstract class Module extends BioLockJ
 				}
 			}
 		}
+		LogUtil.summarize( logKey );
 
 		Collections.sort( inputFiles );
 	}
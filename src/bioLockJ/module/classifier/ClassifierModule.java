@@ -7,12 +7,16 @@
 package bioLockJ.module.classifier;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import bioLockJ.Module;
 import bioLockJ.util.BashScriptUtil;
+import bioLockJ.util.ClassifierCacheUtil;
 import bioLockJ.util.ProcessUtil;
 
 /**
@@ -22,7 +26,10 @@ public abstract class ClassifierModule extends Module
 {
 	protected static String classifierExe = null;
 	protected static List<String> classifierParams = null;
+	protected static String classifierVersion = null;
 	protected static final Logger log = LoggerFactory.getLogger( ClassifierModule.class );
+	private static final long VERSION_TIMEOUT_SECONDS = 60L;
+	private static Future<List<String>> versionOutput = null;
 
 	/**
 	 * Check dependencies as we read in generic classifier props.
@@ -42,6 +49,7 @@ public abstract class ClassifierModule extends Module
 		}
 
 		logVersion();
+		ClassifierCacheUtil.initialize();
 	}
 
 	/**
@@ -59,13 +67,66 @@ public abstract class ClassifierModule extends Module
 		}
 
 		final List<List<String>> data = isPairedRead ? buildScriptForPairedReads( files ): buildScript( files );
-		BashScriptUtil.buildScripts( this, data, files, batchSize );
+		buildScripts( data, files, getSampleSizes( files ) );
+		if( ClassifierCacheUtil.isEnabled() )
+		{
+			ClassifierCacheUtil.cleanUp();
+		}
+
+		// wait for the version command started by checkDependencies() so its output or error is logged
+		getClassifierVersion();
 	}
 
 	protected abstract List<List<String>> buildScript( final List<File> files ) throws Exception;
 
 	protected abstract List<List<String>> buildScriptForPairedReads( final List<File> files ) throws Exception;
 
+	/**
+	 * Write the lines for each sample to subscripts of script.batchSize samples.
+	 * @param data - lines for each sample
+	 * @param files - sample files, used to name failure flags
+	 * @param sampleSizes - total input file size of each sample, in the same order as data
+	 * @throws Exception
+	 */
+	protected void buildScripts( final List<List<String>> data, final List<File> files, final List<Long> sampleSizes )
+			throws Exception
+	{
+		BashScriptUtil.buildScripts( this, data, files, sampleSizes, batchSize );
+	}
+
+	/**
+	 * If classifier.cacheDir is configured, return the lines to copy a cached result to the
+	 * outputFile, or the classifier lines + a line to cache the new outputFile.
+	 * @param inputs - sequence files classified by the lines
+	 * @param outputFile
+	 * @param lines - classifier lines
+	 * @return
+	 * @throws Exception
+	 */
+	protected List<String> getCachedLines( final List<File> inputs, final String outputFile,
+			final List<String> lines ) throws Exception
+	{
+		if( !ClassifierCacheUtil.isEnabled() )
+		{
+			return lines;
+		}
+
+		final String params = getClass().getName() + " " + classifierExe + " " + getClassifierVersion() + " "
+				+ getCacheParams();
+		return ClassifierCacheUtil.getLines( inputs, new File( outputFile ), params, lines );
+	}
+
+	/**
+	 * Get the switches + database params that determine the classifier output, used as part of
+	 * the cache key.  Subclasses with hard coded switches or databases should override.
+	 * @return
+	 * @throws Exception
+	 */
+	protected String getCacheParams() throws Exception
+	{
+		return getProgramSwitches();
+	}
+
 	/**
 	 * Get the basic classifier switches from the prop file.
 	 * @return
@@ -89,6 +150,60 @@ public abstract class ClassifierModule extends Module
 		return formattedSwitches;
 	}
 
+	/**
+	 * Get the total input file size of each sample, in the same order as the data built by
+	 * buildScript() or buildScriptForPairedReads().  Paired read samples are built in the key order
+	 * of getPairedReads(), so each size is the forward + reverse file size.  Subclasses that build
+	 * paired read samples another way must override.
+	 * @param files
+	 * @return
+	 * @throws Exception
+	 */
+	protected List<Long> getSampleSizes( final List<File> files ) throws Exception
+	{
+		if( !isPairedRead )
+		{
+			return BashScriptUtil.getFileSizes( files );
+		}
+
+		final List<Long> sizes = new ArrayList<>();
+		final Map<File, File> map = getPairedReads( files );
+		for( final File file: map.keySet() )
+		{
+			sizes.add( file.length() + map.get( file ).length() );
+		}
+		return sizes;
+	}
+
+	/**
+	 * Get the version output by logVersion().  If no version is available, the size and last
+	 * modified date of the classifier exe are used to identify the version.
+	 * @return
+	 */
+	protected String getClassifierVersion()
+	{
+		if( versionOutput != null )
+		{
+			try
+			{
+				classifierVersion = String.join( " ", ProcessUtil.waitFor( versionOutput ) );
+			}
+			catch( final Exception ex )
+			{
+				error( "Version not found: " + classifierExe, ex );
+			}
+			versionOutput = null;
+		}
+
+		if( ( classifierVersion != null ) && !classifierVersion.trim().isEmpty() )
+		{
+			return classifierVersion;
+		}
+
+		final File exe = new File( classifierExe );
+		return exe.exists() ? ( exe.length() + ":" + exe.lastModified() ): "";
+	}
+
 	/**
 	 * Log the version info to the log file.
 	 */
@@ -99,21 +214,16 @@ public abstract class ClassifierModule extends Module
 
 	/**
 	 * Another method to log version to handle cases with a unique version switch param.
+	 * The version command runs in the background (its output is logged when it completes),
+	 * so checkDependencies() does not wait for it.
 	 * @param programExe
 	 * @param versionSwitch
 	 */
 	private void logVersion( final String programExe, final String versionSwitch )
 	{
-		try
-		{
-			final String[] cmd = new String[ 2 ];
-			cmd[ 0 ] = programExe;
-			cmd[ 1 ] = versionSwitch;
-			ProcessUtil.submit( cmd );
-		}
-		catch( final Exception ex )
-		{
-			error( "Version not found: " + programExe + " " + versionSwitch, ex );
-		}
+		final String[] cmd = new String[ 2 ];
+		cmd[ 0 ] = programExe;
+		cmd[ 1 ] = versionSwitch;
+		versionOutput = ProcessUtil.getOutputAsync( cmd, VERSION_TIMEOUT_SECONDS );
 	}
 }
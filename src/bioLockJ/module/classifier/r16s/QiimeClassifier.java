@@ -7,6 +7,8 @@
 package bioLockJ.module.classifier.r16s;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -82,6 +84,8 @@ public class QiimeClassifier extends ClassifierModule
 	/**
 	 * Build script that calls QIIME summary scripts.  If alphaDiversityMetrics are configured, add
 	 * lines to add the metrics and also update the metadata descriptor to include the new columns.
+	 * If qiime.nativeBiom=Y, summarize_taxa.py is skipped and the OTU table is saved as JSON BIOM
+	 * for QiimeParser, which collapses the taxonomy levels itself.
 	 */
 	@Override
 	protected List<List<String>> buildScript( final List<File> files ) throws Exception
@@ -90,8 +94,8 @@ public class QiimeClassifier extends ClassifierModule
 		final List<List<String>> data = new ArrayList<>();
 		final List<String> lines = new ArrayList<>();
 
-		final String line1 = SCRIPT_SUMMARIZE_TAXA + files.get( 0 ) + " -L " + getQiimeTaxaLevels() + " -o " + outDir
-				+ OTU_DIR;
+		final String line1 = nativeBiom ? getJsonBiomLine( files.get( 0 ), outDir + OTU_DIR )
+				: SCRIPT_SUMMARIZE_TAXA + files.get( 0 ) + " -L " + getQiimeTaxaLevels() + " -o " + outDir + OTU_DIR;
 
 		final String line2 = SCRIPT_SUMMARIZE_BIOM + files.get( 0 ) + " -o " + outDir + OTU_SUMMARY_FILE;
 
@@ -281,6 +285,26 @@ public class QiimeClassifier extends ClassifierModule
 		switches += "-aO" + " " + numThreads + " ";
 	}
 
+	/**
+	 * Get the line to save the OTU table as JSON BIOM in dir.  JSON tables are copied, others
+	 * (HDF5 BIOM 2.x tables) are converted with biom convert.
+	 * @param biom
+	 * @param dir
+	 * @return
+	 * @throws Exception
+	 */
+	private String getJsonBiomLine( final File biom, final String dir ) throws Exception
+	{
+		final String json = dir + File.separator + OTU_TABLE_JSON;
+		if( isJson( biom ) )
+		{
+			return "mkdir -p " + dir + " && cp " + biom.getAbsolutePath() + " " + json;
+		}
+
+		return "mkdir -p " + dir + " && " + SCRIPT_CONVERT_BIOM + biom.getAbsolutePath() + " -o " + json
+				+ " --to-json --table-type=\"OTU table\"";
+	}
+
 	/**
 	 * Set the taxa level indicators based on config taxonomyLevels.
 	 * @return
@@ -320,4 +344,28 @@ public class QiimeClassifier extends ClassifierModule
 
 		return levels;
 	}
+
+	/**
+	 * JSON BIOM files start with "{", HDF5 BIOM files start with a binary signature.
+	 * @param file
+	 * @return
+	 * @throws Exception
+	 */
+	private static boolean isJson( final File file ) throws Exception
+	{
+		final InputStream in = new FileInputStream( file );
+		try
+		{
+			int c = in.read();
+			while( ( c >= 0 ) && Character.isWhitespace( c ) )
+			{
+				c = in.read();
+			}
+			return c == '{';
+		}
+		finally
+		{
+			in.close();
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,361 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Aug 24, 2017
+ * @disclaimer 	This code is free software; you can redistribute it and/or
+ * 				modify it under the terms of the GNU General Public License
+ * 				as published by the Free Software Foundation; either version 2
+ * 				of the License, or (at your option) any later version,
+ * 				provided that any use properly credits the author.
+ * 				This program is distributed in the hope that it will be useful,
+ * 				but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 				MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * 				GNU General Public License for more details at http://www.gnu.org *
+ */
+package bioLockJ.module.classifier.r16s;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.Permission;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * RdpBatchLauncher runs the RDP classifier jar once for all the samples of a subscript
+ * (rdp.batchMode=Y), so the training set is loaded once per batch instead of once per sample.
+ * The Main-Class of the jar is called with the switches RdpClassifier would pass on the command
+ * line, a single combined output file, and every input file (RDP classifies multiple sample files
+ * in order).  The combined output is then split back into 1 output file per sample: RDP writes
+ * 1 line per sequence, starting with the sequence ID, in input order, so each line is matched
+ * to the next record of the current input file with the same ID.  Sequences that RDP skips
+ * (such as reads that are too short) simply have no line, the same as a single sample run.
+ * Switches that write other per-sample files (such as -h) are not split.
+ *
+ * While RDP runs, a SecurityManager turns System.exit() calls made by RDP into an exception, so
+ * the output can still be split.  If RDP fails, or any output line cannot be matched to an input
+ * record, every sample in the batch is failed and its output file is removed.
+ *
+ * Usage: RdpBatchLauncher classifier.jar [switches] -- outputFile1 inputFile1 [outputFile2 inputFile2 ...]
+ */
+public class RdpBatchLauncher
+{
+	/**
+	 * Separates the RDP switches from the output/input file pairs.
+	 */
+	public static final String FILES_ARG = "--";
+
+	public static void main( final String[] args ) throws Exception
+	{
+		final int filesIndex = Arrays.asList( args ).indexOf( FILES_ARG );
+		if( ( args.length < 1 ) || ( filesIndex < 1 ) || ( ( ( args.length - filesIndex - 1 ) % 2 ) != 0 ) )
+		{
+			System.err.println( "Usage: " + RdpBatchLauncher.class.getName()
+					+ " classifier.jar [switches] -- outputFile inputFile [outputFile inputFile ...]" );
+			System.exit( 1 );
+		}
+
+		final List<File> outputs = new ArrayList<>();
+		final List<File> inputs = new ArrayList<>();
+		for( int i = filesIndex + 1; i < args.length; i += 2 )
+		{
+			outputs.add( new File( args[ i ] ) );
+			inputs.add( new File( args[ i + 1 ] ) );
+		}
+
+		if( inputs.isEmpty() )
+		{
+			return;
+		}
+
+		final File combined = File.createTempFile( "rdpBatch", ".tsv",
+				outputs.get( 0 ).getAbsoluteFile().getParentFile() );
+		final List<String> rdpArgs = new ArrayList<>( Arrays.asList( args ).subList( 1, filesIndex ) );
+		rdpArgs.add( "-o" );
+		rdpArgs.add( combined.getAbsolutePath() );
+		for( final File input: inputs )
+		{
+			rdpArgs.add( input.getAbsolutePath() );
+		}
+
+		final long start = System.currentTimeMillis();
+		Throwable error = null;
+		try
+		{
+			error = classify( getMain( new File( args[ 0 ] ) ), rdpArgs );
+			if( error == null )
+			{
+				split( combined, outputs, inputs );
+			}
+		}
+		catch( final Exception ex )
+		{
+			error = ex;
+		}
+		finally
+		{
+			combined.delete();
+		}
+
+		if( error != null )
+		{
+			for( final File output: outputs )
+			{
+				output.delete();
+			}
+			System.err.println( "RdpBatchLauncher failed to classify " + inputs.size() + " samples: " + error );
+			if( !( error instanceof ExitException ) )
+			{
+				error.printStackTrace();
+			}
+			System.exit( 1 );
+		}
+
+		System.out.println( "RdpBatchLauncher classified " + inputs.size() + " samples in "
+				+ ( System.currentTimeMillis() - start ) + " ms" );
+	}
+
+	/**
+	 * Call RDP main() once with the ExitTrap installed.
+	 * @param main
+	 * @param rdpArgs
+	 * @return the error thrown by RDP, or null if it succeeded (or called System.exit( 0 ))
+	 */
+	private static Throwable classify( final Method main, final List<String> rdpArgs ) throws Exception
+	{
+		final SecurityManager defaultManager = System.getSecurityManager();
+		final boolean trapExit = trapExit();
+		try
+		{
+			main.invoke( null, (Object) rdpArgs.toArray( new String[ rdpArgs.size() ] ) );
+			return null;
+		}
+		catch( final InvocationTargetException ex )
+		{
+			final Throwable error = ex.getCause();
+			if( ( error instanceof ExitException ) && ( ( (ExitException) error ).status == 0 ) )
+			{
+				return null;
+			}
+			return error;
+		}
+		finally
+		{
+			if( trapExit )
+			{
+				System.setSecurityManager( defaultManager );
+			}
+		}
+	}
+
+	/**
+	 * Load the jar and find the main() method of its Main-Class.
+	 * @param jar
+	 * @return
+	 * @throws Exception
+	 */
+	private static Method getMain( final File jar ) throws Exception
+	{
+		final JarFile jarFile = new JarFile( jar );
+		final String mainClass;
+		try
+		{
+			mainClass = ( jarFile.getManifest() == null ) ? null
+					: jarFile.getManifest().getMainAttributes().getValue( "Main-Class" );
+		}
+		finally
+		{
+			jarFile.close();
+		}
+
+		if( mainClass == null )
+		{
+			throw new Exception( "Main-Class not found in manifest: " + jar.getAbsolutePath() );
+		}
+
+		final URLClassLoader loader = new URLClassLoader( new URL[] { jar.toURI().toURL() },
+				RdpBatchLauncher.class.getClassLoader() );
+		Thread.currentThread().setContextClassLoader( loader );
+		return Class.forName( mainClass, true, loader ).getMethod( "main", String[].class );
+	}
+
+	/**
+	 * Get the ID of the next FASTA (">ID ...") or FASTQ ("@ID ..." every 4 lines) record: the
+	 * header up to the first whitespace, as RDP reports it.
+	 * @param reader
+	 * @param isFastq
+	 * @return the ID, or null at the end of the file
+	 * @throws Exception
+	 */
+	private static String nextSeqId( final BufferedReader reader, final boolean isFastq ) throws Exception
+	{
+		String line = reader.readLine();
+		if( isFastq )
+		{
+			for( int i = 0; ( line != null ) && ( i < 3 ); i++ )
+			{
+				reader.readLine();
+			}
+		}
+		else
+		{
+			while( ( line != null ) && !line.startsWith( ">" ) )
+			{
+				line = reader.readLine();
+			}
+		}
+
+		if( line == null )
+		{
+			return null;
+		}
+
+		int end = 1;
+		while( ( end < line.length() ) && !Character.isWhitespace( line.charAt( end ) ) )
+		{
+			end++;
+		}
+		return line.substring( 1, end );
+	}
+
+	/**
+	 * Open the sequence file, unzipping it if the name ends with .gz.
+	 * @param file
+	 * @return
+	 * @throws Exception
+	 */
+	private static BufferedReader openInput( final File file ) throws Exception
+	{
+		final InputStream in = new FileInputStream( file );
+		return new BufferedReader( new InputStreamReader(
+				file.getName().toLowerCase().endsWith( ".gz" ) ? new GZIPInputStream( in ): in ) );
+	}
+
+	/**
+	 * Write each line of the combined RDP output to the output file of the input that contains its
+	 * sequence.  Input records are read in order, and a record with no line (not classified by
+	 * RDP) is skipped.
+	 * @param combined
+	 * @param outputs
+	 * @param inputs
+	 * @throws Exception if an output line does not match any remaining input record
+	 */
+	private static void split( final File combined, final List<File> outputs, final List<File> inputs )
+			throws Exception
+	{
+		final BufferedReader reader = new BufferedReader( new FileReader( combined ) );
+		try
+		{
+			String line = reader.readLine();
+			for( int i = 0; i < inputs.size(); i++ )
+			{
+				final BufferedReader input = openInput( inputs.get( i ) );
+				final BufferedWriter writer = new BufferedWriter( new FileWriter( outputs.get( i ) ) );
+				try
+				{
+					int numLines = 0;
+					input.mark( 1 );
+					final boolean isFastq = ( input.read() == '@' );
+					input.reset();
+					String id = ( line == null ) ? null: nextSeqId( input, isFastq );
+					while( ( line != null ) && ( id != null ) )
+					{
+						if( line.startsWith( id ) && ( ( line.length() == id.length() )
+								|| Character.isWhitespace( line.charAt( id.length() ) ) ) )
+						{
+							writer.write( line + "\n" );
+							numLines++;
+							line = reader.readLine();
+						}
+						id = nextSeqId( input, isFastq );
+					}
+					System.out.println( "RdpBatchLauncher wrote " + numLines + " lines for " + inputs.get( i ).getName()
+							+ " to " + outputs.get( i ).getAbsolutePath() );
+				}
+				finally
+				{
+					writer.close();
+					input.close();
+				}
+			}
+
+			if( line != null )
+			{
+				throw new Exception( "RDP output line does not match any input record: " + line );
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Install the ExitTrap SecurityManager.
+	 * @return false if this JVM does not allow a SecurityManager to be installed
+	 */
+	private static boolean trapExit()
+	{
+		try
+		{
+			System.setSecurityManager( new ExitTrap() );
+			return true;
+		}
+		catch( final UnsupportedOperationException | SecurityException ex )
+		{
+			System.err.println( "RdpBatchLauncher cannot trap System.exit() on this JVM, "
+					+ "a System.exit() call from RDP will end the batch: " + ex );
+			return false;
+		}
+	}
+
+	/**
+	 * Thrown in place of System.exit() while the samples run.
+	 */
+	private static class ExitException extends SecurityException
+	{
+		private static final long serialVersionUID = 1L;
+		private final int status;
+
+		ExitException( final int status )
+		{
+			super( "System.exit( " + status + " )" );
+			this.status = status;
+		}
+	}
+
+	/**
+	 * SecurityManager that allows everything except System.exit().
+	 */
+	private static class ExitTrap extends SecurityManager
+	{
+		@Override
+		public void checkExit( final int status )
+		{
+			throw new ExitException( status );
+		}
+
+		@Override
+		public void checkPermission( final Permission perm )
+		{
+		}
+
+		@Override
+		public void checkPermission( final Permission perm, final Object context )
+		{
+		}
+	}
+}
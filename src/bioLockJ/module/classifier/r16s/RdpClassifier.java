@@ -17,15 +17,25 @@ package bioLockJ.module.classifier.r16s;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import bioLockJ.module.classifier.ClassifierModule;
+import bioLockJ.util.BashScriptUtil;
 
 /**
- * RdpClassifier is used to build RDP classifier bash scripts
+ * RdpClassifier is used to build RDP classifier bash scripts.
+ *
+ * If rdp.batchMode=Y, each subscript calls RdpBatchLauncher once to classify all of its samples
+ * with a single RDP run, so JVM start-up and loading the training set are paid once per
+ * subscript.  The combined RDP output is split back into 1 output file per sample.  If RDP fails,
+ * every sample in the subscript fails.
  */
 public class RdpClassifier extends ClassifierModule
 {
+	private boolean batchMode = false;
 	private String javaExe;
+	private final List<String> rdpLines = new ArrayList<>();
+	private final List<String[]> rdpFiles = new ArrayList<>();
 
 	/**
 	 * The only unique RDP dependency is on Java.
@@ -35,7 +45,7 @@ public class RdpClassifier extends ClassifierModule
 	{
 		super.checkDependencies();
 		javaExe = requireString( EXE_JAVA );
-
+		batchMode = getBoolean( RDP_BATCH_MODE );
 	}
 
 	/**
@@ -52,7 +62,9 @@ public class RdpClassifier extends ClassifierModule
 			final ArrayList<String> lines = new ArrayList<>();
 			lines.add( javaExe + " -jar " + classifierExe + getProgramSwitches() + "-o " + outputFile + " "
 					+ file.getAbsolutePath() );
-			data.add( lines );
+			rdpLines.add( lines.get( 0 ) );
+			rdpFiles.add( new String[] { outputFile, file.getAbsolutePath() } );
+			data.add( getCachedLines( Arrays.asList( file ), outputFile, lines ) );
 		}
 
 		return data;
@@ -67,6 +79,67 @@ public class RdpClassifier extends ClassifierModule
 		return buildScript( files );
 	}
 
+	/**
+	 * In batch mode, samples are grouped into script.batchSize batches here and each batch is
+	 * written as a single RdpBatchLauncher line.  Samples with a cached result are copied from the
+	 * cache before the RdpBatchLauncher line, since lines after a failed line are skipped, and the
+	 * lines that store new results in the cache follow it.
+	 */
+	@Override
+	protected void buildScripts( final List<List<String>> data, final List<File> files, final List<Long> sampleSizes )
+			throws Exception
+	{
+		if( !batchMode )
+		{
+			super.buildScripts( data, files, sampleSizes );
+			return;
+		}
+
+		final List<List<String>> batchData = new ArrayList<>();
+		final List<File> batchFiles = new ArrayList<>();
+		for( final List<Integer> batch: BashScriptUtil.getBatches( data, batchSize, sampleSizes ) )
+		{
+			final StringBuffer pairs = new StringBuffer();
+			final List<String> cacheHitLines = new ArrayList<>();
+			final List<String> cacheStoreLines = new ArrayList<>();
+			for( final Integer index: batch )
+			{
+				final List<String> lines = data.get( index );
+				if( lines.get( 0 ).equals( rdpLines.get( index ) ) )
+				{
+					pairs.append( " " + rdpFiles.get( index )[ 0 ] + " " + rdpFiles.get( index )[ 1 ] );
+					cacheStoreLines.addAll( lines.subList( 1, lines.size() ) );
+				}
+				else
+				{
+					cacheHitLines.addAll( lines );
+				}
+			}
+
+			final List<String> lines = new ArrayList<>( cacheHitLines );
+			if( pairs.length() > 0 )
+			{
+				lines.add( getLauncher() + pairs );
+			}
+			lines.addAll( cacheStoreLines );
+			batchData.add( lines );
+			batchFiles.add( files.get( batch.get( 0 ) ) );
+		}
+
+		info( "batch mode: " + data.size() + " samples in " + batchData.size() + " JVM launches" );
+		BashScriptUtil.buildScripts( this, batchData, batchFiles, 1 );
+	}
+
+	/**
+	 * Paired reads are classified 1 file at a time (see buildScriptForPairedReads), so each sample
+	 * size is the size of its file.
+	 */
+	@Override
+	protected List<Long> getSampleSizes( final List<File> files ) throws Exception
+	{
+		return BashScriptUtil.getFileSizes( files );
+	}
+
 	/**
 	 * RDP does not supply a version call.
 	 */
@@ -76,4 +149,19 @@ public class RdpClassifier extends ClassifierModule
 		warn( "Version unavailable for: " + classifierExe );
 	}
 
+	/**
+	 * Get the RdpBatchLauncher command, up to the first output/input file pair.  The launcher runs
+	 * from the BioLockJ jar (or classes dir) this class was loaded from.
+	 * @return
+	 * @throws Exception
+	 */
+	private String getLauncher() throws Exception
+	{
+		final String classpath = new File(
+				RdpBatchLauncher.class.getProtectionDomain().getCodeSource().getLocation().toURI() ).getAbsolutePath();
+		final String switches = getProgramSwitches().trim();
+		return javaExe + " -cp " + classpath + " " + RdpBatchLauncher.class.getName() + " " + classifierExe + " "
+				+ ( switches.isEmpty() ? "": switches + " " ) + RdpBatchLauncher.FILES_ARG;
+	}
+
 }
@@ -1,16 +1,15 @@
 package bioLockJ.module.classifier.r16s.qiime;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import bioLockJ.util.MetadataUtil;
 
 /**
  * This file is used to help work with the Qiime mapping file.
@@ -23,6 +22,7 @@ public class QiimeMapping extends bioLockJ.BioLockJ
 	private static boolean initialized = false;
 	private static final Map<String, String> qiimeIdToSampleIdMap = new HashMap<>();
 	private static QiimeMapping qm = null;
+	private static final String FASTA_SUFFIX = "." + FASTA;
 	private static final List<String> requiredFields = new ArrayList<>();
 	private static final Map<String, String> sampleIdToQiimeIdMap = new HashMap<>();
 
@@ -93,9 +93,20 @@ public class QiimeMapping extends bioLockJ.BioLockJ
 	 * @return
 	 */
 	public static String getUniqueId( final String headerId, final String restOfLine )
+	{
+		return getUniqueId( headerId, Arrays.asList( restOfLine.split( DELIM ) ) );
+	}
+
+	/**
+	 * The required "#SampleID" column must be converted to a unique name that doesn't include
+	 * the "#" symbol which is a special character in R.
+	 * @param headerId
+	 * @param colNames
+	 * @return
+	 */
+	public static String getUniqueId( final String headerId, final List<String> colNames )
 	{
 		String id = "SampleID";
-		final ArrayList<String> colNames = new ArrayList<>( Arrays.asList( restOfLine.split( DELIM ) ) );
 
 		int x = 0;
 		if( headerId.equals( QIIME_ID ) )
@@ -323,16 +334,18 @@ public class QiimeMapping extends bioLockJ.BioLockJ
 	 * The mapping file contains the sampleID in the DEMUX_COLUMN where it is parsed out of the
 	 * formatted file name: "sampleId.fasta"
 	 * @param qiimeId
-	 * @param fileNameCol
+	 * @param hasFileNameCol
 	 * @return
 	 * @throws Exception
 	 */
-	private static String getSampleIdFromMappingFile( final String qiimeId, final int fileNameCol ) throws Exception
+	private static String getSampleIdFromMappingFile( final String qiimeId, final boolean hasFileNameCol )
+			throws Exception
 	{
-		if( fileNameCol != -1 )
+		if( hasFileNameCol )
 		{
-			return config.getMetaUtil().getAttributes( qiimeId ).get( ( fileNameCol - 1 ) ).replaceAll( "." + FASTA,
-					"" );
+			final String fileName = config.getMetaUtil().getValue( qiimeId, DEMUX_COLUMN );
+			return fileName.endsWith( FASTA_SUFFIX ) ? fileName.substring( 0, fileName.length() - FASTA_SUFFIX.length() )
+					: fileName;
 		}
 
 		return qiimeId;
@@ -351,48 +364,18 @@ public class QiimeMapping extends bioLockJ.BioLockJ
 	}
 
 	/**
-	 * Converts the QIIME mapping (with key=QIIME_ID) into standard metadata (with key=QIIME_ID).
+	 * Converts the QIIME mapping (with key=QIIME_ID) into standard metadata (with key=SAMPLE_ID).
 	 * Converts header column #SAMPLE_ID into an R-friendly value (without a #).
-	 * Populates the maps needed to convert QIIME_ID <=> SAMPLE_ID.
-	 * @param metaUtil
+	 * The IDs are replaced in memory, using the maps built by initializeMaps(), so the new
+	 * metadata file is only written to the outputDir when it is requested.
 	 * @param outputDir
-	 * @return
 	 * @throws Exception
 	 */
-	public File getMetadata( final File outputDir ) throws Exception
+	public void remapMetadata( final File outputDir ) throws Exception
 	{
-		final File meta = config.getMetaUtil().getMetadata();
-		final String name = meta.getName();
-		final File newMeta = new File( outputDir.getAbsolutePath() + File.separator + name );
-		boolean isHeaderRow = true;
-		final BufferedReader reader = new BufferedReader( new FileReader( meta ) );
-		final BufferedWriter writer = new BufferedWriter( new FileWriter( newMeta ) );
-		try
-		{
-			for( String line = reader.readLine(); line != null; line = reader.readLine() )
-			{
-				final String rowId = parseIdFromLine( line );
-				final String restOfLine = line.substring( rowId.length() );
-				if( isHeaderRow )
-				{
-					isHeaderRow = false;
-					line = getUniqueId( rowId, restOfLine ) + restOfLine;
-				}
-				else
-				{
-					line = getSampleId( rowId ) + restOfLine;
-				}
-				writer.write( line + "\n" );
-			}
-		}
-		finally
-		{
-			reader.close();
-			writer.flush();
-			writer.close();
-		}
-
-		return newMeta;
+		final MetadataUtil metaUtil = config.getMetaUtil();
+		final String newId = getUniqueId( metaUtil.getMetaId(), metaUtil.getAttributeNames() );
+		metaUtil.renameIds( newId, qiimeIdToSampleIdMap, outputDir );
 	}
 
 	/**
@@ -435,43 +418,31 @@ public class QiimeMapping extends bioLockJ.BioLockJ
 	 */
 	private void initializeMaps() throws Exception
 	{
-		info( "Initialize QIIME_ID to SAMPLE_ID Maps for: " + config.getMetadata().getAbsolutePath() );
-		int fileNameCol = 0;
-		boolean isHeaderRow = true;
+		final MetadataUtil metaUtil = config.getMetaUtil();
+		final boolean hasFileNameCol = metaUtil.getAttributeNames().contains( DEMUX_COLUMN );
+		info( "Initialize QIIME_ID to SAMPLE_ID Maps for: " + metaUtil.getMetadataPath() );
+		info( "Header ID (" + metaUtil.getMetaId() + ") " + ( hasFileNameCol ? "has ": "does not have " )
+				+ DEMUX_COLUMN );
 		int count = 0;
-		final BufferedReader reader = new BufferedReader( new FileReader( config.getMetadata() ) );
-		try
+		for( final String qiimeId: metaUtil.getMetaFileFirstColValues() )
 		{
-			for( String line = reader.readLine(); line != null; line = reader.readLine() )
+			if( qiimeId.equals( metaUtil.getMetaId() ) )
 			{
-				final String qiimeId = parseIdFromLine( line );
-				if( isHeaderRow )
-				{
-					isHeaderRow = false;
-					fileNameCol = getFileNameColumn( line );
-					info( "Header ID (" + qiimeId + ") has " + DEMUX_COLUMN + " in column #" + fileNameCol );
-				}
-				else
-				{
-					final String sampleId = getSampleIdFromMappingFile( qiimeId, fileNameCol );
-
-					if( count++ < 1 )
-					{
-						info( "[Example Id-Map Entry] QIIME_ID(" + qiimeId + ")<=>SAMPLE_ID(" + sampleId + ")" );
-					}
-					else
-					{
-						debug( "[Id-Map Entry] QIIME_ID(" + qiimeId + ")<=>SAMPLE_ID(" + sampleId + ")" );
-					}
+				continue;
+			}
 
-					qiimeIdToSampleIdMap.put( qiimeId, sampleId );
-					sampleIdToQiimeIdMap.put( sampleId, qiimeId );
-				}
+			final String sampleId = getSampleIdFromMappingFile( qiimeId, hasFileNameCol );
+			if( count++ < 1 )
+			{
+				info( "[Example Id-Map Entry] QIIME_ID(" + qiimeId + ")<=>SAMPLE_ID(" + sampleId + ")" );
 			}
-		}
-		finally
-		{
-			reader.close();
+			else
+			{
+				debug( "[Id-Map Entry] QIIME_ID(" + qiimeId + ")<=>SAMPLE_ID(" + sampleId + ")" );
+			}
+
+			qiimeIdToSampleIdMap.put( qiimeId, sampleId );
+			sampleIdToQiimeIdMap.put( sampleId, qiimeId );
 		}
 	}
 }
\ No newline at end of file
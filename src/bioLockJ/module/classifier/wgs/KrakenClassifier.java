@@ -17,17 +17,41 @@ package bioLockJ.module.classifier.wgs;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.apache.commons.io.FileUtils;
 import bioLockJ.module.classifier.ClassifierModule;
 
 /**
  * This class builds the Kraken classifier scripts.
+ *
+ * If kraken.reportMode=Y, kraken-mpa-report is run instead of kraken-translate, so each sample
+ * output file has 1 line per taxa with the # reads classified to that clade instead of 1 line per
+ * read.  KrakenParser reads these counts directly.
+ *
+ * If kraken.sharedDbDir is set (for example /dev/shm/kraken), the first subscript to run on a node
+ * copies the database to that dir under a file lock and touches a .complete flag.  Every kraken
+ * call on the node then uses the copy, so a RAM disk dir keeps the database memory resident
+ * instead of reloading it from disk for each sample.  --preload is dropped since it would read
+ * the whole database into each kraken process again.  The copy name includes the total size and
+ * latest modified time of the database files, so a database rebuilt at the same path is copied
+ * again, and that stamp is part of the classifier cache key.  Making a new copy removes older
+ * copies of the same database path.  The current copy is left in place so later jobs on the node
+ * can reuse it: on a RAM disk it holds the size of the database in memory until the node reboots
+ * or it is removed (rm -rf kraken.sharedDbDir/dbName_*).
  */
 public class KrakenClassifier extends ClassifierModule
 {
+	private static final String COMPLETE_FLAG = ".complete";
+	private static final String LOCK_FILE = ".lock";
 	private File krakenDatabase;
+	private String krakenDatabaseStamp;
+	private boolean reportMode = false;
+	private String scriptSwitches;
+	private String sharedDb = null;
 	private String switches;
 
 	/**
@@ -38,8 +62,16 @@ public class KrakenClassifier extends ClassifierModule
 	{
 		super.checkDependencies();
 		krakenDatabase = requireExistingFile( KRAKEN_DATABASE );
+		krakenDatabaseStamp = getDatabaseStamp();
+		reportMode = getBoolean( KRAKEN_REPORT_MODE );
 		switches = getProgramSwitches();
 
+		if( reportMode && demultiplex )
+		{
+			throw new Exception( KRAKEN_REPORT_MODE + "=Y cannot be used with " + INPUT_DEMULTIPLEX
+					+ "=Y since kraken-mpa-report output does not include sequence IDs" );
+		}
+
 		if( switches.indexOf( "--fasta-input " ) > -1 )
 		{
 			switches.replaceAll( "--fasta-input", "" );
@@ -70,11 +102,21 @@ public class KrakenClassifier extends ClassifierModule
 		}
 
 		addHardCodedSwitches();
+		scriptSwitches = switches;
+
+		final String sharedDbDir = getString( KRAKEN_SHARED_DB_DIR );
+		if( ( sharedDbDir != null ) && !sharedDbDir.trim().isEmpty() )
+		{
+			sharedDb = new File( sharedDbDir.trim(), getSharedDbPrefix() + krakenDatabaseStamp ).getAbsolutePath();
+			scriptSwitches = switches.replace( "--db " + krakenDatabase.getAbsolutePath() + " ", "--db " + sharedDb + " " )
+					.replace( "--preload ", "" );
+			info( "Kraken database will be copied once per node to: " + sharedDb );
+		}
 	}
 
 	/**
 	 * Build scripts that outputs initial Kraken classification files to tempDir.
-	 * Next, call kraken-translate and output results to outputDir.
+	 * Next, call kraken-translate (or kraken-mpa-report) and output results to outputDir.
 	 */
 	@Override
 	protected List<List<String>> buildScript( final List<File> files ) throws Exception
@@ -86,13 +128,13 @@ public class KrakenClassifier extends ClassifierModule
 			final String tempFile = getTempDir().getAbsolutePath() + File.separator + fileId + KRAKEN_FILE;
 			final String krakenOutput = getOutputDir().getAbsolutePath() + File.separator + fileId + PROCESSED;
 
-			final ArrayList<String> lines = new ArrayList<>( 2 );
+			final ArrayList<String> lines = new ArrayList<>( 3 );
 
-			lines.add( classifierExe + switches + "--output " + tempFile + " " + file.getAbsolutePath() );
-			lines.add( classifierExe + "-translate --db " + krakenDatabase.getAbsolutePath() + " --mpa-format "
-					+ tempFile + " > " + krakenOutput );
+			addSharedDbLine( lines );
+			lines.add( classifierExe + scriptSwitches + "--output " + tempFile + " " + file.getAbsolutePath() );
+			lines.add( getTranslateLine( tempFile, krakenOutput ) );
 
-			data.add( lines );
+			data.add( getCachedLines( Arrays.asList( file ), krakenOutput, lines ) );
 		}
 
 		return data;
@@ -100,7 +142,7 @@ public class KrakenClassifier extends ClassifierModule
 
 	/**
 	 * Build scripts for paired reads that outputs initial Kraken classification files to tempDir.
-	 * Next, call kraken-translate and output results to outputDir.
+	 * Next, call kraken-translate (or kraken-mpa-report) and output results to outputDir.
 	 */
 	@Override
 	protected List<List<String>> buildScriptForPairedReads( final List<File> files ) throws Exception
@@ -113,20 +155,31 @@ public class KrakenClassifier extends ClassifierModule
 			final String tempFile = getTempDir().getAbsolutePath() + File.separator + fileId + KRAKEN_FILE;
 			final String krakenOutput = getOutputDir().getAbsolutePath() + File.separator + fileId + PROCESSED;
 
-			final ArrayList<String> lines = new ArrayList<>( 2 );
+			final ArrayList<String> lines = new ArrayList<>( 3 );
 
-			lines.add( classifierExe + " --db " + krakenDatabase.getAbsolutePath() + switches + "--output " + tempFile
-					+ " " + file.getAbsolutePath() + " " + map.get( file ).getAbsolutePath() );
+			addSharedDbLine( lines );
+			lines.add( classifierExe + " --db " + getDbPath() + scriptSwitches + "--output " + tempFile + " "
+					+ file.getAbsolutePath() + " " + map.get( file ).getAbsolutePath() );
 
-			lines.add( classifierExe + "-translate --db " + krakenDatabase.getAbsolutePath() + " --mpa-format "
-					+ tempFile + " > " + krakenOutput );
+			lines.add( getTranslateLine( tempFile, krakenOutput ) );
 
-			data.add( lines );
+			data.add( getCachedLines( Arrays.asList( file, map.get( file ) ), krakenOutput, lines ) );
 		}
 
 		return data;
 	}
 
+	/**
+	 * The number of threads does not change the Kraken output, so it is excluded from the cache key.
+	 * Report mode output has a different format, so it is included.
+	 */
+	@Override
+	protected String getCacheParams() throws Exception
+	{
+		return switches.replace( "--threads " + numThreads + " ", "" ) + ( reportMode ? " mpa-report": "" )
+				+ " db=" + krakenDatabaseStamp;
+	}
+
 	/**
 	 * Add hard coded switches to classifier switches value.
 	 * @throws Exception
@@ -165,6 +218,76 @@ public class KrakenClassifier extends ClassifierModule
 		return krakenSwitches;
 	}
 
+	/**
+	 * If kraken.sharedDbDir is set, add a line to copy the database to the shared dir unless a
+	 * previous subscript on this node already has.  flock makes concurrent subscripts wait for
+	 * the copy to complete.  Copies of older versions of the database are removed first.
+	 * @param lines
+	 */
+	private void addSharedDbLine( final List<String> lines )
+	{
+		if( sharedDb != null )
+		{
+			final File dir = new File( sharedDb ).getParentFile();
+			lines.add( "mkdir -p " + dir.getAbsolutePath() + " && flock " + sharedDb + LOCK_FILE + " -c \"[ -f "
+					+ sharedDb + COMPLETE_FLAG + " ] || { rm -rf " + sharedDb + " && find " + dir.getAbsolutePath()
+					+ " -maxdepth 1 -name '" + getSharedDbPrefix() + "*' ! -name '" + new File( sharedDb ).getName()
+					+ "*' -exec rm -rf {} + && cp -r " + krakenDatabase.getAbsolutePath() + " " + sharedDb
+					+ " && touch " + sharedDb + COMPLETE_FLAG + "; }\"" );
+		}
+	}
+
+	/**
+	 * Identify the version of the kraken database by the total size and latest last modified
+	 * time of its files.
+	 * @return
+	 */
+	private String getDatabaseStamp()
+	{
+		long size = 0L;
+		long lastModified = krakenDatabase.lastModified();
+		final Collection<File> dbFiles = krakenDatabase.isDirectory()
+				? FileUtils.listFiles( krakenDatabase, null, true ): Arrays.asList( krakenDatabase );
+		for( final File f: dbFiles )
+		{
+			size += f.length();
+			lastModified = Math.max( lastModified, f.lastModified() );
+		}
+		return Long.toHexString( size ) + "_" + Long.toHexString( lastModified );
+	}
+
+	/**
+	 * Get the database path used in the scripts (the shared copy if kraken.sharedDbDir is set).
+	 * @return
+	 */
+	private String getDbPath()
+	{
+		return ( sharedDb == null ) ? krakenDatabase.getAbsolutePath(): sharedDb;
+	}
+
+	/**
+	 * Get the shared database name, up to the database stamp.  All copies of the database at
+	 * kraken.db share this prefix.
+	 * @return
+	 */
+	private String getSharedDbPrefix()
+	{
+		return krakenDatabase.getName() + "_" + Integer.toHexString( krakenDatabase.getAbsolutePath().hashCode() )
+				+ "_";
+	}
+
+	/**
+	 * Get the line to convert the Kraken output in tempFile to mpa-format in krakenOutput.
+	 * @param tempFile
+	 * @param krakenOutput
+	 * @return
+	 */
+	private String getTranslateLine( final String tempFile, final String krakenOutput )
+	{
+		return classifierExe + ( reportMode ? "-mpa-report": "-translate" ) + " --db " + getDbPath()
+				+ ( reportMode ? " ": " --mpa-format " ) + tempFile + " > " + krakenOutput;
+	}
+
 	/**
 	 * Set the input switch based on inputSequenceType.
 	 * @return
@@ -17,18 +17,36 @@ package bioLockJ.module.classifier.wgs;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import bioLockJ.module.classifier.ClassifierModule;
+import bioLockJ.util.ClassifierCacheUtil;
 
 /**
  * This class builds the scripts used to call Metaphlan for classification of WGS data.
+ *
+ * The bowtie2 mapping is saved (--bowtie2out) so samples with a complete bowtie2out file are
+ * classified with --input_type bowtie2out instead of mapping the reads again.  If
+ * metaphlan.bowtie2Dir is configured, bowtie2out files are kept there, named by the digest of
+ * the input files + the MetaPhlAn version & mapping switches, so any project can reuse them.  The
+ * input file digests are saved in the classifier.cacheDir index, or in metaphlan.bowtie2Dir if
+ * the cache is disabled, so the inputs are only read once.
+ * Otherwise they are kept in MetaphlanClassifier/temp and reused if the project is restarted.
  */
 public class MetaphlanClassifier extends ClassifierModule
 {
 	private static final String bowtie2ext = ".bowtie2.bz2";
+	private static final String BOWTIE2OUT = "bowtie2out";
+	private static final String DONE = ".done";
+	private static final List<String> mappingSwitches = Arrays.asList( "--bowtie2db", "--bt2_ps", "--index",
+			"--min_alignment_len", "--mpa_pkl", "--read_min_len", "-x" );
+	private static final String TEMP = ".tmp$$";
 	private static Map<String, String> taxaLevelMap = new HashMap<>();
+	private File bowtie2Dir = null;
+	private String bowtie2Switches = null;
+	private int numReused = 0;
 	private String pythonExe = null;
 	private String switches = null;
 
@@ -66,7 +84,7 @@ public class MetaphlanClassifier extends ClassifierModule
 		if( switches.indexOf( "--bowtie2out " ) > -1 )
 		{
 			throw new Exception( "Invalid classifier option (--bowtie2out) found in property(" + EXE_CLASSIFIER_PARAMS
-					+ "). BioLockJ outputs bowtie2out files to MetaphlanClassifier/temp." );
+					+ "). BioLockJ outputs bowtie2out files to MetaphlanClassifier/temp or " + METAPHLAN_BOWTIE2_DIR );
 		}
 		if( switches.indexOf( "-t rel_ab_w_read_stats " ) > -1 )
 		{
@@ -91,7 +109,18 @@ public class MetaphlanClassifier extends ClassifierModule
 
 		setRankSwitch();
 		addHardCodedSwitches();
+		bowtie2Switches = switches.replace( "--input_type " + inputSequenceType + " ", "--input_type " + BOWTIE2OUT + " " );
 
+		final String dir = getString( METAPHLAN_BOWTIE2_DIR );
+		if( ( dir != null ) && !dir.trim().isEmpty() )
+		{
+			bowtie2Dir = new File( dir );
+			if( !bowtie2Dir.exists() && !bowtie2Dir.mkdirs() )
+			{
+				throw new Exception( METAPHLAN_BOWTIE2_DIR + " could not be created: " + bowtie2Dir.getAbsolutePath() );
+			}
+			ClassifierCacheUtil.initializeDigestIndex( bowtie2Dir );
+		}
 	}
 
 	/**
@@ -105,13 +134,12 @@ public class MetaphlanClassifier extends ClassifierModule
 		{
 			final String fileId = trimSampleID( file.getName() );
 			final String outputFile = getOutputDir().getAbsolutePath() + File.separator + fileId + PROCESSED;
-			final String bowtie2Out = getTempDir().getAbsolutePath() + File.separator + fileId + bowtie2ext;
-			final ArrayList<String> lines = new ArrayList<>();
-			lines.add( pythonExe + " " + classifierExe + switches + file.getAbsolutePath() + " --bowtie2out "
-					+ bowtie2Out + " > " + outputFile );
-			data.add( lines );
+			final List<File> inputs = Arrays.asList( file );
+			data.add( getCachedLines( inputs, outputFile,
+					getLines( fileId, inputs, file.getAbsolutePath(), outputFile ) ) );
 		}
 
+		logNumReused( files.size() );
 		return data;
 	}
 
@@ -127,16 +155,24 @@ public class MetaphlanClassifier extends ClassifierModule
 		{
 			final String fileId = trimSampleID( file.getName() );
 			final String outputFile = getOutputDir().getAbsolutePath() + File.separator + fileId + PROCESSED;
-			final String bowtie2Out = getTempDir().getAbsolutePath() + File.separator + fileId + bowtie2ext;
-			final ArrayList<String> lines = new ArrayList<>();
-			lines.add( pythonExe + " " + classifierExe + switches + file.getAbsolutePath() + ","
-					+ map.get( file ).getAbsolutePath() + " --bowtie2out " + bowtie2Out + " > " + outputFile );
-			data.add( lines );
+			final List<File> inputs = Arrays.asList( file, map.get( file ) );
+			data.add( getCachedLines( inputs, outputFile, getLines( fileId, inputs,
+					file.getAbsolutePath() + "," + map.get( file ).getAbsolutePath(), outputFile ) ) );
 		}
 
+		logNumReused( map.size() );
 		return data;
 	}
 
+	/**
+	 * The number of processes does not change the MetaPhlAn output, so it is excluded from the cache key.
+	 */
+	@Override
+	protected String getCacheParams() throws Exception
+	{
+		return switches.replace( "--nproc " + numThreads + " ", "" );
+	}
+
 	/**
 	 * All Metaphlan queries will set --input_type, --nproc, and -t
 	 * @return
@@ -151,6 +187,74 @@ public class MetaphlanClassifier extends ClassifierModule
 		return metaphlanSwitches;
 	}
 
+	/**
+	 * Get the bowtie2out file path (without the extension).  If metaphlan.bowtie2Dir is configured,
+	 * the name is the digest of the inputs + the MetaPhlAn version & switches that change the mapping,
+	 * so report options such as --tax_lev do not change the name.
+	 * @param fileId
+	 * @param inputs
+	 * @return
+	 * @throws Exception
+	 */
+	protected String getBowtie2OutBase( final String fileId, final List<File> inputs ) throws Exception
+	{
+		if( bowtie2Dir == null )
+		{
+			return getTempDir().getAbsolutePath() + File.separator + fileId;
+		}
+
+		final StringBuffer params = new StringBuffer( classifierExe + " " + getClassifierVersion() );
+		final String[] tokens = switches.trim().split( "\\s+" );
+		for( int i = 0; i < tokens.length; i++ )
+		{
+			if( mappingSwitches.contains( tokens[ i ] ) )
+			{
+				params.append( " " + tokens[ i ] );
+				if( ( ( i + 1 ) < tokens.length ) && !tokens[ i + 1 ].startsWith( "-" ) )
+				{
+					params.append( " " + tokens[ ++i ] );
+				}
+			}
+		}
+
+		return bowtie2Dir.getAbsolutePath() + File.separator
+				+ ClassifierCacheUtil.getKey( inputs, params.toString() );
+	}
+
+	/**
+	 * If a complete bowtie2out file exists for the inputs, classify it with --input_type bowtie2out.
+	 * Otherwise classify the reads and save the bowtie2out file.  MetaPhlAn will not overwrite an
+	 * existing bowtie2out file, so it is written to a temp file and then moved.  The .done file
+	 * is created last so partial files left by failed jobs are never reused.  If any step fails, the
+	 * temp file is removed and the exit code of the failed step is kept.
+	 * @param fileId
+	 * @param inputs
+	 * @param inputArg - input file path(s) passed to MetaPhlAn
+	 * @param outputFile
+	 * @return
+	 * @throws Exception
+	 */
+	protected List<String> getLines( final String fileId, final List<File> inputs, final String inputArg,
+			final String outputFile ) throws Exception
+	{
+		final String base = getBowtie2OutBase( fileId, inputs );
+		final File bowtie2Out = new File( base + bowtie2ext );
+		final List<String> lines = new ArrayList<>();
+		if( bowtie2Out.exists() && ( bowtie2Out.length() > 0 ) && new File( base + bowtie2ext + DONE ).exists() )
+		{
+			numReused++;
+			lines.add( pythonExe + " " + classifierExe + bowtie2Switches + bowtie2Out.getAbsolutePath() + " > "
+					+ outputFile );
+			return lines;
+		}
+
+		final String temp = base + TEMP + bowtie2ext;
+		lines.add( pythonExe + " " + classifierExe + switches + inputArg + " --bowtie2out " + temp + " > "
+				+ outputFile + " && mv -f " + temp + " " + bowtie2Out.getAbsolutePath() + " && touch "
+				+ bowtie2Out.getAbsolutePath() + DONE + " || { rc=$?; rm -f " + temp + "; (exit $rc); }" );
+		return lines;
+	}
+
 	/**
 	 * Add getMetaphlanHardCodedSwitches() to switches value.
 	 * @throws Exception
@@ -169,6 +273,13 @@ public class MetaphlanClassifier extends ClassifierModule
 		}
 	}
 
+	private void logNumReused( final int numSamples )
+	{
+		info( "MetaphlanClassifier reusing bowtie2out files for " + numReused + " of " + numSamples + " samples"
+				+ ( ( bowtie2Dir == null ) ? "": " from " + bowtie2Dir.getAbsolutePath() ) );
+		numReused = 0;
+	}
+
 	/**
 	 * Set the rankSwitch based on the configured taxonomyLevels in the prop file if only one
 	 * taxonomy level is to be reported.
@@ -26,6 +26,14 @@ import bioLockJ.module.classifier.ClassifierModule;
 
 /**
  * This class builds the scripts used to call SLIMM for classification of WGS data.
+ *
+ * By default Bowtie2 alignments are written to a BAM file in the module temp dir.  If
+ * slimm.scratchDir is set (for example $TMPDIR on a node-local disk), the BAM is written there
+ * instead and removed as soon as SLIMM has read it, or if either step fails.  If
+ * slimm.streamAlignments=Y, the BAM is a named pipe so Bowtie2 + samtools stream straight into
+ * SLIMM and no alignment file is written at all.  The pipe keeps the .bam name so SLIMM output
+ * file names are unchanged.  In every mode the exit code of the failed step is returned to
+ * the subscript, so failure flags are set as before.
  */
 public class SlimmClassifier extends ClassifierModule
 {
@@ -37,9 +45,11 @@ public class SlimmClassifier extends ClassifierModule
 	private String bowtieSwitches = null;
 	private String inputTypeSwitch = null;
 	private String samToolsExe = null;
+	private String scratchDir = null;
 	private File slimmDB = null;
 	private String slimmRefGenomeIndex = null;
 	private String slimmSwitches = null;
+	private boolean streamAlignments = false;
 
 	static
 	{
@@ -64,6 +74,12 @@ public class SlimmClassifier extends ClassifierModule
 		slimmRefGenomeIndex = requireString( SLIMM_REF_GENOME_INDEX );
 		samToolsExe = requireString( EXE_SAMTOOLS );
 		bowtieExe = requireString( EXE_BOWTIE );
+		scratchDir = getString( SLIMM_SCRATCH_DIR );
+		if( ( scratchDir != null ) && scratchDir.trim().isEmpty() )
+		{
+			scratchDir = null;
+		}
+		streamAlignments = getBoolean( SLIMM_STREAM_ALIGNMENTS );
 
 		if( inputSequenceType.equals( FASTQ ) )
 		{
@@ -135,18 +151,7 @@ public class SlimmClassifier extends ClassifierModule
 		for( final File file: files )
 		{
 			final String fileId = trimSampleID( file.getName() );
-			final String alignFile = getTempDir().getAbsolutePath() + File.separator + fileId + ".bam";
-
-			final ArrayList<String> lines = new ArrayList<>( 2 );
-
-			lines.add( bowtieExe + bowtieSwitches + "-x " + slimmRefGenomeIndex + " -U " + file.getAbsolutePath() + " "
-					+ " 2> " + getTempDir().getAbsolutePath() + File.separator + fileId + "_alignmentReport.txt | "
-					+ samToolsExe + " view -bS -> " + alignFile );
-
-			lines.add( classifierExe + slimmSwitches + "-m " + slimmDB.getAbsolutePath() + " -o "
-					+ getOutputDir().getAbsolutePath() + File.separator + " " + alignFile );
-
-			data.add( lines );
+			data.add( getLines( fileId, "-U " + file.getAbsolutePath() + " " ) );
 		}
 
 		return data;
@@ -163,18 +168,8 @@ public class SlimmClassifier extends ClassifierModule
 		for( final File file: map.keySet() )
 		{
 			final String fileId = trimSampleID( file.getName() );
-			final String alignFile = getTempDir().getAbsolutePath() + File.separator + fileId + ".bam";
-
-			final ArrayList<String> lines = new ArrayList<>( 2 );
-
-			lines.add( bowtieExe + bowtieSwitches + "-x " + slimmRefGenomeIndex + " -1 " + file.getAbsolutePath()
-					+ " -2 " + map.get( file ).getAbsolutePath() + " 2> " + getTempDir().getAbsolutePath()
-					+ File.separator + fileId + "_alignmentReport.txt | " + samToolsExe + " view -bS -> " + alignFile );
-
-			lines.add( classifierExe + slimmSwitches + "-m " + slimmDB.getAbsolutePath() + " -o "
-					+ getOutputDir().getAbsolutePath() + File.separator + " " + alignFile );
-
-			data.add( lines );
+			data.add( getLines( fileId,
+					"-1 " + file.getAbsolutePath() + " -2 " + map.get( file ).getAbsolutePath() ) );
 		}
 
 		return data;
@@ -229,6 +224,48 @@ public class SlimmClassifier extends ClassifierModule
 		}
 	}
 
+	/**
+	 * Get the lines to align the input with Bowtie2 and classify the alignments with SLIMM.
+	 * Exit codes are saved in variables so cleanup commands can run without hiding a failure.
+	 * @param fileId
+	 * @param inputArgs - Bowtie2 input file args
+	 * @return
+	 * @throws Exception
+	 */
+	private List<String> getLines( final String fileId, final String inputArgs ) throws Exception
+	{
+		final String dir = ( scratchDir == null ) ? getTempDir().getAbsolutePath(): scratchDir;
+		final String alignFile = dir + File.separator + fileId + ".bam";
+		final String align = bowtieExe + bowtieSwitches + "-x " + slimmRefGenomeIndex + " " + inputArgs + " 2> "
+				+ getTempDir().getAbsolutePath() + File.separator + fileId + "_alignmentReport.txt | " + samToolsExe
+				+ " view -bS -> " + alignFile;
+		final String slimm = classifierExe + slimmSwitches + "-m " + slimmDB.getAbsolutePath() + " -o "
+				+ getOutputDir().getAbsolutePath() + File.separator + " " + alignFile;
+		final String mkdir = ( scratchDir == null ) ? "": "mkdir -p " + scratchDir + " && ";
+
+		final ArrayList<String> lines = new ArrayList<>( 2 );
+		if( streamAlignments )
+		{
+			// if SLIMM fails before it opens the pipe, kill the writer so wait does not hang
+			lines.add( mkdir + "rm -f " + alignFile + " && mkfifo " + alignFile + " && { " + align + " & " + slimm
+					+ "; slimmExitCode=$?; [[ $slimmExitCode == 0 ]] || kill $! 2> /dev/null; wait $!; "
+					+ "alignExitCode=$?; rm -f " + alignFile + "; (exit $slimmExitCode) && (exit $alignExitCode); }" );
+		}
+		else if( scratchDir != null )
+		{
+			lines.add( mkdir + align + "; alignExitCode=$?; [[ $alignExitCode == 0 ]] || rm -f " + alignFile
+					+ "; (exit $alignExitCode)" );
+			lines.add( slimm + "; slimmExitCode=$?; rm -f " + alignFile + "; (exit $slimmExitCode)" );
+		}
+		else
+		{
+			lines.add( align );
+			lines.add( slimm );
+		}
+
+		return lines;
+	}
+
 	/**
 	 * Format standard switches for call to Bowtie.
 	 */
@@ -212,6 +212,16 @@ public abstract class ParserModule extends Module
 		}
 	}
 
+	/**
+	 * Get the node for the sampleID.
+	 * @param id
+	 * @return null if no node has been added for the sampleID
+	 */
+	protected OtuNode getOtuNode( final String id )
+	{
+		return otuNodes.get( id );
+	}
+
 	/**
 	 * Merge taxonomy level raw count and relative abundance files with metadata.
 	 *
@@ -18,6 +18,7 @@ package bioLockJ.module.parser.r16s;
 import java.io.BufferedReader;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.StringTokenizer;
 import org.apache.commons.io.filefilter.IOFileFilter;
@@ -25,7 +26,10 @@ import org.apache.commons.io.filefilter.NameFileFilter;
 import org.apache.commons.io.filefilter.TrueFileFilter;
 import bioLockJ.module.classifier.r16s.qiime.QiimeMapping;
 import bioLockJ.module.parser.ParserModule;
+import bioLockJ.node.OtuNode;
 import bioLockJ.node.r16s.QiimeNode;
+import bioLockJ.util.BiomTable;
+import bioLockJ.util.ProgressTracker;
 
 /**
  * To see file format: > head otu_table_L2.txt
@@ -33,11 +37,15 @@ import bioLockJ.node.r16s.QiimeNode;
  * # Constructed from biom file #OTU ID 3A.1 6A.1 120A.1 7A.1
  * k__Bacteria;p__Actinobacteria 419.0 26.0 90.0 70.0
  *
+ * If qiime.nativeBiom=Y, the input is the JSON BIOM OTU table (otu_table.json) and all taxonomy
+ * levels are built from the OTU taxonomy in one pass, instead of reading summarize_taxa.py output.
  */
 public class QiimeParser extends ParserModule
 {
+	private BiomTable biomTable = null;
 	private int mergeLineCount = 0;
 	private final List<String> orderedSampleIDs = new ArrayList<>();
+	private OtuNode[] sampleNodes = null;
 
 	/**
 	 * QIIME doesn't support the demultiplex option
@@ -61,10 +69,16 @@ public class QiimeParser extends ParserModule
 	public void executeProjectFile() throws Exception
 	{
 		final List<File> inputFiles = getInputFiles();
-		setOrderedSampleIDs( inputFiles.get( 0 ) );
+		if( nativeBiom )
+		{
+			setOrderedSampleIDsFromBiom( inputFiles.get( 0 ) );
+		}
+		else
+		{
+			setOrderedSampleIDs( inputFiles.get( 0 ) );
+		}
 
-		final File metadata = QiimeMapping.getMapping().getMetadata( getTempDir() );
-		config.getMetaUtil().loadMetadata( metadata, config.getDescriptor() );
+		QiimeMapping.getMapping().remapMetadata( getTempDir() );
 		super.executeProjectFile();
 	}
 
@@ -76,7 +90,7 @@ public class QiimeParser extends ParserModule
 	public void initInputFiles( final File dir ) throws Exception
 	{
 
-		final String searchTerm = getLowestTaxaLevelFileName();
+		final String searchTerm = nativeBiom ? OTU_TABLE_JSON: getLowestTaxaLevelFileName();
 		info( "Recursively search for most specific taxa file " + searchTerm + " in: " + getName( dir ) );
 		final IOFileFilter ff = new NameFileFilter( searchTerm );
 		setModuleInput( dir, ff, TrueFileFilter.INSTANCE );
@@ -117,13 +131,22 @@ public class QiimeParser extends ParserModule
 
 	/**
 	 * Create OTU nodes based on classifier output.  One file will have info for all sampelIDs,
-	 * which are indexed within orderedSampleIDs.
+	 * which are indexed within orderedSampleIDs.  The file is streamed one row at a time: the
+	 * taxa of each row are parsed once (on the first non-zero cell) and zero cells are skipped
+	 * without building a node.
 	 */
 	@Override
 	protected void createOtuNodes() throws Exception
 	{
+		if( biomTable != null )
+		{
+			createOtuNodesFromBiom();
+			return;
+		}
+
 		final File file = getInputFiles().get( 0 );
 		info( "PARSE FILE = " + file.getName() );
+		final ProgressTracker progress = ProgressTracker.start( "Parse OTU table", Arrays.asList( file ) );
 		final BufferedReader reader = getFileReader( file );
 		try
 		{
@@ -131,20 +154,33 @@ public class QiimeParser extends ParserModule
 			{
 				if( !line.startsWith( "#" ) )
 				{
-					final StringTokenizer st = new StringTokenizer( line, DELIM );
+					int start = skipTabs( line, 0 );
+					int end = getEnd( line, start );
+					final String taxa = line.substring( start, end );
+					QiimeNode taxaNode = null;
 					int index = 0;
-					final String taxa = st.nextToken();
-					while( st.hasMoreTokens() )
+					while( ( start = skipTabs( line, end ) ) < line.length() )
 					{
-						final Integer count = Double.valueOf( st.nextToken() ).intValue();
-						final String id = orderedSampleIDs.get( index++ );
+						end = getEnd( line, start );
+						if( index >= orderedSampleIDs.size() )
+						{
+							throw new Exception( "Row has more counts than the " + orderedSampleIDs.size()
+									+ " Sample IDs in the header: " + taxa );
+						}
+
+						final int count = QiimeNode.parseCount( line, start, end );
 						if( count > 0 )
 						{
-							final QiimeNode node = new QiimeNode( taxa, count );
-							addOtuNode( id, node );
+							if( taxaNode == null )
+							{
+								taxaNode = new QiimeNode( taxa, 1 );
+							}
+							addCount( index, taxaNode, count );
 						}
+						index++;
 					}
 				}
+				progress.addRecords( 1 );
 			}
 		}
 		catch( final Exception ex )
@@ -155,6 +191,36 @@ public class QiimeParser extends ParserModule
 		{
 			reader.close();
 		}
+		progress.finish();
+	}
+
+	/**
+	 * Add count x taxaNode to the node of the sample in column index of the OTU table.  The sample
+	 * nodes are cached by column, so each cell is added directly to the sample counts.
+	 * @param index - index of the sample in orderedSampleIDs
+	 * @param taxaNode - taxa of the row, built with count = 1
+	 * @param count
+	 * @throws Exception
+	 */
+	protected void addCount( final int index, final QiimeNode taxaNode, final int count ) throws Exception
+	{
+		if( sampleNodes == null )
+		{
+			sampleNodes = new OtuNode[ orderedSampleIDs.size() ];
+		}
+
+		if( sampleNodes[ index ] == null )
+		{
+			final String id = orderedSampleIDs.get( index );
+			sampleNodes[ index ] = getOtuNode( id );
+			if( sampleNodes[ index ] == null )
+			{
+				sampleNodes[ index ] = new QiimeNode();
+				addOtuNode( id, sampleNodes[ index ] );
+			}
+		}
+
+		sampleNodes[ index ].mergeNode( taxaNode, count );
 	}
 
 	/**
@@ -188,6 +254,103 @@ public class QiimeParser extends ParserModule
 		return sb.toString();
 	}
 
+	/**
+	 * Get the Sample ID for the QIIME ID in the OTU table header.
+	 * @param qiimeId
+	 * @return
+	 * @throws Exception
+	 */
+	protected String getSampleId( final String qiimeId ) throws Exception
+	{
+		return QiimeMapping.getMapping().getSampleId( qiimeId );
+	}
+
+	/**
+	 * Sample IDs are read in from the header line, in order & saved to orderedSampleIDs.
+	 * @param file
+	 * @throws Exception
+	 */
+	protected void setOrderedSampleIDs( final File file ) throws Exception
+	{
+		info( "Configure ordered list of Sample IDs based on example file: " + file.getAbsolutePath() );
+		final BufferedReader reader = getFileReader( file );
+		try
+		{
+			String header = reader.readLine(); // skip first line (its a comment)
+			header = reader.readLine().replace( OTU_ID, "" );
+			final String[] parts = header.split( "\\s" );
+			for( final String qiimeId: parts )
+			{
+				if( qiimeId.trim().length() > 0 )
+				{
+					orderedSampleIDs.add( getSampleId( qiimeId ) );
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		info( "orderedSampleIDs( " + orderedSampleIDs.size() + " ) = " + orderedSampleIDs );
+	}
+
+	/**
+	 * Add each non-zero BIOM entry to its sample.  The taxa of each OTU are parsed once, on its
+	 * first non-zero entry.  Counts are truncated to int as summarize_taxa.py output would be.
+	 * @throws Exception
+	 */
+	private void createOtuNodesFromBiom() throws Exception
+	{
+		final File file = getInputFiles().get( 0 );
+		info( "PARSE FILE = " + file.getName() );
+		final ProgressTracker progress = ProgressTracker.start( "Parse BIOM table", Arrays.asList( file ) );
+		final QiimeNode[] taxaNodes = new QiimeNode[ biomTable.getNumRows() ];
+		for( int i = 0; i < biomTable.getNumEntries(); i++ )
+		{
+			final int count = (int) biomTable.getValue( i );
+			if( count > 0 )
+			{
+				final int row = biomTable.getRow( i );
+				if( taxaNodes[ row ] == null )
+				{
+					taxaNodes[ row ] = new QiimeNode( biomTable.getTaxonomy( row ), 1 );
+				}
+				addCount( biomTable.getCol( i ), taxaNodes[ row ], count );
+			}
+			progress.addRecords( 1 );
+		}
+
+		biomTable = null;
+		progress.finish();
+	}
+
+	/**
+	 * Get the index of the next tab (or the line length).
+	 * @param line
+	 * @param start
+	 * @return
+	 */
+	private static int getEnd( final String line, final int start )
+	{
+		final int end = line.indexOf( TAB, start );
+		return ( end < 0 ) ? line.length(): end;
+	}
+
+	/**
+	 * Get the index of the first non-tab character at or after start (or the line length).
+	 * @param line
+	 * @param start
+	 * @return
+	 */
+	private static int skipTabs( final String line, int start )
+	{
+		while( ( start < line.length() ) && ( line.charAt( start ) == TAB ) )
+		{
+			start++;
+		}
+		return start;
+	}
+
 	/**
 	 * Find the lowest taxa level.
 	 * @return
@@ -229,31 +392,20 @@ public class QiimeParser extends ParserModule
 	}
 
 	/**
-	 * Sample IDs are read in from the header line, in order & saved to orderedSampleIDs.
+	 * Read the JSON BIOM table & save its column IDs to orderedSampleIDs.
 	 * @param file
 	 * @throws Exception
 	 */
-	private void setOrderedSampleIDs( final File file ) throws Exception
+	private void setOrderedSampleIDsFromBiom( final File file ) throws Exception
 	{
-		info( "Configure ordered list of Sample IDs based on example file: " + file.getAbsolutePath() );
-		final BufferedReader reader = getFileReader( file );
-		try
+		info( "Read JSON BIOM table: " + file.getAbsolutePath() );
+		biomTable = BiomTable.read( file );
+		for( final String qiimeId: biomTable.getColumnIds() )
 		{
-			String header = reader.readLine(); // skip first line (its a comment)
-			header = reader.readLine().replace( OTU_ID, "" );
-			final String[] parts = header.split( "\\s" );
-			for( final String qiimeId: parts )
-			{
-				if( qiimeId.trim().length() > 0 )
-				{
-					orderedSampleIDs.add( QiimeMapping.getMapping().getSampleId( qiimeId ) );
-				}
-			}
-		}
-		finally
-		{
-			reader.close();
+			orderedSampleIDs.add( getSampleId( qiimeId ) );
 		}
+		info( "BIOM table: " + biomTable.getNumRows() + " OTUs x " + orderedSampleIDs.size() + " samples, "
+				+ biomTable.getNumEntries() + " non-zero counts" );
 		info( "orderedSampleIDs( " + orderedSampleIDs.size() + " ) = " + orderedSampleIDs );
 	}
 }
@@ -19,6 +19,8 @@ import java.io.BufferedReader;
 import java.io.File;
 import bioLockJ.module.parser.ParserModule;
 import bioLockJ.node.r16s.RdpNode;
+import bioLockJ.util.LogUtil;
+import bioLockJ.util.ProgressTracker;
 
 /**
  * To see file format: > head 7A_1_reported.tsv
@@ -44,26 +46,44 @@ public class RdpParser extends ParserModule
 	}
 
 	/**
-	 * RDP nodes may be multiplexed so determine ID based on demultiplex option.
+	 * RDP nodes may be multiplexed so determine ID based on demultiplex option.  Reads below the
+	 * threshold score are skipped before the taxa are parsed, the rest are counted directly into
+	 * the RdpNode for the sample.
 	 */
 	@Override
 	protected void createOtuNodes() throws Exception
 	{
+		final ProgressTracker progress = ProgressTracker.start( "Parse classifier output", getInputFiles() );
+		final String logKey = getClass().getSimpleName() + " PARSE FILE";
 		int fileCount = 0;
 		for( final File file: getInputFiles() )
 		{
-			info( "PARSE FILE # (" + String.valueOf( fileCount++ ) + ") = " + file.getName() );
+			LogUtil.info( logKey, logKey + " # (" + String.valueOf( fileCount++ ) + ") = " + file.getName() );
 			final BufferedReader reader = getFileReader( file );
+			final String fileId = demultiplex ? null: getFileID( file );
+			String lastId = null;
+			RdpNode node = null;
 			try
 			{
 				for( String line = reader.readLine(); line != null; line = reader.readLine() )
 				{
-					final RdpNode node = new RdpNode( line );
-					if( node.getScore() >= thresholdScore )
+					if( RdpNode.parseScore( line ) >= thresholdScore )
 					{
-						final String id = ( demultiplex ? trimSampleID( node.getId() ): getFileID( file ) );
-						addOtuNode( id, node );
+						final String id = ( demultiplex ? trimSampleID( RdpNode.getSeqId( line ) ): fileId );
+						if( !id.equals( lastId ) )
+						{
+							node = (RdpNode) getOtuNode( id );
+							if( node == null )
+							{
+								node = new RdpNode();
+								addOtuNode( id, node );
+							}
+							lastId = id;
+						}
+
+						node.addLine( line );
 					}
+					progress.addRecords( 1 );
 				}
 			}
 			catch( final Exception ex )
@@ -75,5 +95,7 @@ public class RdpParser extends ParserModule
 				reader.close();
 			}
 		}
+		progress.finish();
+		LogUtil.summarize( logKey );
 	}
 }
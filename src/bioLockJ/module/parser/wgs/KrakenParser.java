@@ -19,6 +19,8 @@ import java.io.BufferedReader;
 import java.io.File;
 import bioLockJ.module.parser.ParserModule;
 import bioLockJ.node.wgs.KrakenNode;
+import bioLockJ.util.LogUtil;
+import bioLockJ.util.ProgressTracker;
 
 /**
  * To see file format: > head 7A_1_reported.tsv
@@ -29,24 +31,66 @@ import bioLockJ.node.wgs.KrakenNode;
  */
 public class KrakenParser extends ParserModule
 {
+	private boolean reportMode = false;
+
+	/**
+	 * If kraken.reportMode=Y, input files are kraken-mpa-report output (1 line per clade with the
+	 * clade count) which cannot be demultiplexed.
+	 */
+	@Override
+	public void checkDependencies() throws Exception
+	{
+		super.checkDependencies();
+		reportMode = getBoolean( KRAKEN_REPORT_MODE );
+		if( reportMode && demultiplex )
+		{
+			throw new Exception( KRAKEN_REPORT_MODE + "=Y cannot be used with " + INPUT_DEMULTIPLEX + "=Y" );
+		}
+	}
+
 	/**
-	 * Kraken nodes may be multiplexed so determine ID based on demultiplex option.
+	 * Kraken nodes may be multiplexed so determine ID based on demultiplex option.  Each line is
+	 * counted directly into the KrakenNode for its sample.  In report mode, header and blank lines
+	 * are skipped and each clade count is added once.
 	 */
 	@Override
 	protected void createOtuNodes() throws Exception
 	{
+		final ProgressTracker progress = ProgressTracker.start( "Parse classifier output", getInputFiles() );
+		final String logKey = getClass().getSimpleName() + " PARSE FILE";
 		int fileCount = 0;
 		for( final File file: getInputFiles() )
 		{
-			info( "PARSE FILE # (" + String.valueOf( fileCount++ ) + ") = " + file.getName() );
+			LogUtil.info( logKey, logKey + " # (" + String.valueOf( fileCount++ ) + ") = " + file.getName() );
 			final BufferedReader reader = getFileReader( file );
+			final String fileId = demultiplex ? null: getFileID( file );
+			String lastId = null;
+			KrakenNode node = null;
 			try
 			{
 				for( String line = reader.readLine(); line != null; line = reader.readLine() )
 				{
-					final KrakenNode node = new KrakenNode( line );
-					final String id = ( demultiplex ? trimSampleID( node.getId() ): getFileID( file ) );
-					addOtuNode( id, node );
+					final String id = ( demultiplex ? trimSampleID( KrakenNode.getSeqId( line ) ): fileId );
+					if( !id.equals( lastId ) )
+					{
+						node = (KrakenNode) getOtuNode( id );
+						if( node == null )
+						{
+							node = new KrakenNode();
+							addOtuNode( id, node );
+						}
+						lastId = id;
+					}
+
+					if( !reportMode )
+					{
+						node.addLine( line );
+					}
+					else if( !line.trim().isEmpty() && !line.startsWith( "#" ) )
+					{
+						node.addReportLine( line );
+					}
+					progress.addRecords( 1 );
 				}
 			}
 			catch( final Exception ex )
@@ -58,5 +102,7 @@ public class KrakenParser extends ParserModule
 				reader.close();
 			}
 		}
+		progress.finish();
+		LogUtil.summarize( logKey );
 	}
 }
@@ -19,6 +19,8 @@ import java.io.BufferedReader;
 import java.io.File;
 import bioLockJ.module.parser.ParserModule;
 import bioLockJ.node.wgs.MetaphlanNode;
+import bioLockJ.util.LogUtil;
+import bioLockJ.util.ProgressTracker;
 
 /**
  * To see file format: > head 7A_1_processed.txt
@@ -47,10 +49,12 @@ public class MetaphlanParser extends ParserModule
 	@Override
 	protected void createOtuNodes() throws Exception
 	{
+		final ProgressTracker progress = ProgressTracker.start( "Parse classifier output", getInputFiles() );
+		final String logKey = getClass().getSimpleName() + " PARSE FILE";
 		int fileCount = 0;
 		for( final File file: getInputFiles() )
 		{
-			info( "PARSE FILE # (" + String.valueOf( fileCount++ ) + ") = " + file.getName() );
+			LogUtil.info( logKey, logKey + " # (" + String.valueOf( fileCount++ ) + ") = " + file.getName() );
 			final BufferedReader reader = getFileReader( file );
 			try
 			{
@@ -61,6 +65,7 @@ public class MetaphlanParser extends ParserModule
 						final MetaphlanNode node = new MetaphlanNode( line );
 						addOtuNode( getFileID( file ), node );
 					}
+					progress.addRecords( 1 );
 				}
 			}
 			catch( final Exception ex )
@@ -72,5 +77,7 @@ public class MetaphlanParser extends ParserModule
 				reader.close();
 			}
 		}
+		progress.finish();
+		LogUtil.summarize( logKey );
 	}
 }
@@ -21,6 +21,8 @@ import java.util.ArrayList;
 import java.util.List;
 import bioLockJ.module.parser.ParserModule;
 import bioLockJ.node.wgs.SlimmNode;
+import bioLockJ.util.LogUtil;
+import bioLockJ.util.ProgressTracker;
 
 /**
  * To see file format: > head 7A_1_phylum_reported.tsv
@@ -60,10 +62,12 @@ public class SlimmParser extends ParserModule
 	@Override
 	protected void createOtuNodes() throws Exception
 	{
+		final ProgressTracker progress = ProgressTracker.start( "Parse classifier output", getInputFiles() );
+		final String logKey = getClass().getSimpleName() + " PARSE FILE";
 		int fileCount = 0;
 		for( final File file: getInputFiles() )
 		{
-			info( "PARSE FILE # (" + String.valueOf( fileCount++ ) + ") = " + file.getName() );
+			LogUtil.info( logKey, logKey + " # (" + String.valueOf( fileCount++ ) + ") = " + file.getName() );
 			final BufferedReader reader = getFileReader( file );
 			try
 			{
@@ -72,6 +76,7 @@ public class SlimmParser extends ParserModule
 				{
 					final SlimmNode node = new SlimmNode( file.getName(), line );
 					addOtuNode( getFileID( file ), node );
+					progress.addRecords( 1 );
 				}
 			}
 			finally
@@ -79,6 +84,8 @@ public class SlimmParser extends ParserModule
 				reader.close();
 			}
 		}
+		progress.finish();
+		LogUtil.summarize( logKey );
 	}
 
 	/**
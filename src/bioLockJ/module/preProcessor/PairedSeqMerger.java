@@ -24,6 +24,7 @@ public class PairedSeqMerger extends Module
 	public static String pear = null;
 	public static List<String> pearParams = null;
 	private static List<File> fwReads = new ArrayList<>();
+	private static List<Long> sampleSizes = new ArrayList<>();
 
 	/**
 	 * Verify pear props are valid and inputType is fastQ.
@@ -52,7 +53,7 @@ public class PairedSeqMerger extends Module
 	public void executeProjectFile() throws Exception
 	{
 		final List<List<String>> mergedLines = getMergeLines( getInputFiles() );
-		BashScriptUtil.buildScripts( this, mergedLines, fwReads, batchSize );
+		BashScriptUtil.buildScripts( this, mergedLines, fwReads, sampleSizes, batchSize );
 		isPairedRead = false;
 	}
 
@@ -77,6 +78,7 @@ public class PairedSeqMerger extends Module
 		{
 			final List<String> lines = new ArrayList<>();
 			fwReads.add( file );
+			sampleSizes.add( file.length() + map.get( file ).length() );
 			final String sampleId = trimSampleID( file.getName() );
 			lines.add( pear + " -f " + file.getAbsolutePath() + " -r " + map.get( file ).getAbsolutePath() + " -o "
 					+ tempDir + sampleId + params );
@@ -20,6 +20,8 @@ import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.stream.IntStream;
 import bioLockJ.Module;
+import bioLockJ.util.LogUtil;
+import bioLockJ.util.ProgressTracker;
 
 /**
  *
@@ -64,25 +66,20 @@ public class Rarefier extends Module
 		info( "=====> Min # Reads = " + rarefyingMin );
 		info( "=====> Max # Reads = " + rarefyingMax );
 
-		int i = 0;
+		final ProgressTracker progress = ProgressTracker.start( "Rarefy", files );
 		for( final File f: files )
 		{
-			rarefy( f );
-			if( ( ++i % 5 ) == 0 )
-			{
-				info( "Done rarefying " + i + "/" + numFiles + " files." );
-			}
-		}
-
-		if( ( i % 5 ) != 0 )
-		{
-			info( "Done rarefying " + i + "/" + numFiles + " files." );
+			rarefy( f, progress );
 		}
+		progress.finish();
+		LogUtil.summarize( getClass().getSimpleName() + " Sample" );
+		info( "Done rarefying " + numFiles + " files." );
 
 		removeBadSamples();
 	}
 
-	private void buildRarefiedFile( final File input, final List<Integer> indexes ) throws Exception
+	private void buildRarefiedFile( final File input, final List<Integer> indexes, final ProgressTracker progress )
+			throws Exception
 	{
 		final String fileExt = "." + ( isFastA() ? FASTA: FASTQ );
 		final int blockSize = isFastA() ? 2: 4;
@@ -107,6 +104,7 @@ public class Rarefier extends Module
 				if( ( ++i % blockSize ) == 0 )
 				{
 					index++;
+					progress.addRecords( 1 );
 				}
 			}
 
@@ -132,11 +130,12 @@ public class Rarefier extends Module
 		}
 	}
 
-	private void rarefy( final File f ) throws Exception
+	private void rarefy( final File f, final ProgressTracker progress ) throws Exception
 	{
 		final String sampleId = trimSampleID( f.getName() );
 		final int numReads = getReadsPerSample().get( sampleId );
-		info( "Sample[" + sampleId + "] - numReads = " + numReads );
+		final String logKey = getClass().getSimpleName() + " Sample";
+		LogUtil.info( logKey, logKey + "[" + sampleId + "] - numReads = " + numReads );
 		if( numReads >= rarefyingMin )
 		{
 			final int[] range = IntStream.rangeClosed( 0, ( numReads - 1 ) ).toArray();
@@ -144,7 +143,7 @@ public class Rarefier extends Module
 			Collections.addAll( indexes, Arrays.stream( range ).boxed().toArray( Integer[]::new ) );
 			Collections.shuffle( indexes );
 			indexes.subList( rarefyingMax, indexes.size() ).clear();
-			buildRarefiedFile( f, indexes );
+			buildRarefiedFile( f, indexes, progress );
 		}
 		else
 		{
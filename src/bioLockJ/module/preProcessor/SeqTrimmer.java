@@ -17,6 +17,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 import bioLockJ.Module;
+import bioLockJ.util.ProgressTracker;
 
 /**
  * This utility trims primers configured using regular expressions.
@@ -135,6 +136,7 @@ public class SeqTrimmer extends Module
 		final int target = isFastA() ? 2: 4;
 		int fileCount = 0;
 		info( "Trimming primers from " + count + " " + ( isFastA() ? FASTA: FASTQ ) + " files..." );
+		final ProgressTracker progress = ProgressTracker.start( "Trim primers", files );
 		for( final File file: files )
 		{
 			String fileName = file.getName();
@@ -275,6 +277,7 @@ public class SeqTrimmer extends Module
 					seqLines[seqCount++] = line;
 					if( seqCount == target )
 					{
+						progress.addRecords( 1 );
 						if( keepSeqsMissingPrimer || validRecord )
 						{
 							for( int j=0; j<target; j++ )
@@ -299,13 +302,9 @@ public class SeqTrimmer extends Module
 				writer.flush();
 				writer.close();
 			}
-
-			if( ( ( fileCount + 1 ) % 25 ) == 0 )
-			{
-				info( "Done trimming " + fileCount + "/" + count + " files." );
-			}
 		}
 
+		progress.finish();
 		info( "Done trimming " + fileCount + "/" + count + " files." );
 	}
 }
\ No newline at end of file
@@ -151,8 +151,7 @@ public abstract class OtuNode extends bioLockJ.BioLockJ
 	 */
 	public void addCount( final String level, final String name, final int count ) throws Exception
 	{
-		final int newCount = count + getCount( level, name );
-		getMap( level ).put( name, newCount );
+		getMap( level ).merge( name, count, Integer::sum );
 	}
 
 	/**
@@ -228,15 +227,27 @@ public abstract class OtuNode extends bioLockJ.BioLockJ
 	 * @throws Exception
 	 */
 	public void mergeNode( final OtuNode node ) throws Exception
+	{
+		mergeNode( node, 1 );
+	}
+
+	/**
+	 * Add the counts of the node, each multiplied by multiplier.  Used to add one taxa template
+	 * node (built with count = 1) to many samples without building a node per sample.
+	 * @param node
+	 * @param multiplier
+	 * @throws Exception
+	 */
+	public void mergeNode( final OtuNode node, final int multiplier ) throws Exception
 	{
 		for( final String level: taxaLevels )
 		{
 			final Map<String, Integer> map = node.getMap( level );
 			if( map != null )
 			{
-				for( final String taxa: map.keySet() )
+				for( final Map.Entry<String, Integer> entry: map.entrySet() )
 				{
-					addCount( level, taxa, map.get( taxa ) );
+					addCount( level, entry.getKey(), entry.getValue() * multiplier );
 				}
 			}
 		}
@@ -317,23 +328,6 @@ public abstract class OtuNode extends bioLockJ.BioLockJ
 		fullName.setLength( 0 );
 	}
 
-	/**
-	 * Return the count for a given taxaLevel for this node ID.
-	 * @param level
-	 * @param name
-	 * @return
-	 * @throws Exception
-	 */
-	private int getCount( final String level, final String name ) throws Exception
-	{
-		Integer count = getMap( level ).get( name );
-		if( count == null )
-		{
-			count = 0;
-		}
-		return count;
-	}
-
 	/**
 	 * Return the top level map which can be used to find numHits once all nodes are populated.
 	 * @return
@@ -29,6 +29,7 @@ import bioLockJ.node.OtuNode;
  */
 public class QiimeNode extends OtuNode
 {
+	private static final int MAX_INT_DIGITS = 9;
 	private static Map<String, String> taxaLevelMap = null;
 
 	static
@@ -42,6 +43,13 @@ public class QiimeNode extends OtuNode
 		}
 	}
 
+	/**
+	 * Create an empty node to accumulate the counts of one sample.
+	 */
+	public QiimeNode()
+	{
+	}
+
 	public QiimeNode( final String line, final int count ) throws Exception
 	{
 		final StringTokenizer st = new StringTokenizer( line, QIIME_DELIM );
@@ -62,4 +70,49 @@ public class QiimeNode extends OtuNode
 		setFullNameCount( count );
 	}
 
+	/**
+	 * Parse the count in line.substring( start, end ) without building a Double.  QIIME writes
+	 * counts as decimals (such as 419.0), which are truncated the same as Double.intValue().
+	 * Any other format (such as 1.2e3) is parsed with Double.valueOf().
+	 * @param line
+	 * @param start
+	 * @param end
+	 * @return
+	 */
+	public static int parseCount( final String line, final int start, final int end )
+	{
+		int count = 0;
+		int i = start;
+		while( ( i < end ) && ( ( i - start ) < MAX_INT_DIGITS ) && isDigit( line.charAt( i ) ) )
+		{
+			count = ( count * 10 ) + ( line.charAt( i++ ) - '0' );
+		}
+
+		if( ( i > start ) && ( ( i == end ) || ( line.charAt( i ) == '.' ) ) )
+		{
+			int j = ( i == end ) ? end: i + 1;
+			while( ( j < end ) && isDigit( line.charAt( j ) ) )
+			{
+				j++;
+			}
+			if( j == end )
+			{
+				return count;
+			}
+		}
+
+		return Double.valueOf( line.substring( start, end ) ).intValue();
+	}
+
+	/**
+	 * ASCII digits only: Character.isDigit() also accepts other Unicode digits, which Double.valueOf()
+	 * rejects.
+	 * @param c
+	 * @return
+	 */
+	private static boolean isDigit( final char c )
+	{
+		return ( c >= '0' ) && ( c <= '9' );
+	}
+
 }
\ No newline at end of file
@@ -15,7 +15,6 @@
  */
 package bioLockJ.node.r16s;
 
-import java.util.StringTokenizer;
 import bioLockJ.node.OtuNode;
 
 /**
@@ -25,31 +24,109 @@ import bioLockJ.node.OtuNode;
  * Firmicutes phylum 1.0 Clostridia class 1.0 Clostridiales order 1.0
  * Ruminococcaceae family 1.0 Faecalibacterium genus 1.0
  *
+ * Lines are scanned one char at a time.  Scores are parsed as fixed-point ints directly from the
+ * line and rank names are matched in place against the configured taxonomy levels, so a String
+ * is only created for taxa that are counted.  Use parseScore() to check the score of a line
+ * before calling addLine(), so low scoring reads are rejected without creating any Strings.
  */
 public class RdpNode extends OtuNode
 {
+	private static final String[] levels = taxonomyLevels.toArray( new String[ taxonomyLevels.size() ] );
 	private int score;
 
+	/**
+	 * Create an empty node.  Counts are added by addLine().
+	 */
+	public RdpNode()
+	{
+	}
+
 	public RdpNode( final String line ) throws Exception
 	{
-		final StringTokenizer st = new StringTokenizer( line, DELIM );
-		setId( st.nextToken() );
-		while( st.hasMoreTokens() )
+		addLine( line );
+	}
+
+	/**
+	 * Get the sequence ID (1st tab delimited column) without parsing the taxa.
+	 * @param line
+	 * @return
+	 */
+	public static String getSeqId( final String line )
+	{
+		final int start = skipTabs( line, 0 );
+		return line.substring( start, nextTab( line, start ) );
+	}
+
+	/**
+	 * Get the score of the line (the score of the last rank reported) without parsing the taxa.
+	 * @param line
+	 * @return score between 0 and 100 (0 if no ranks are reported)
+	 * @throws Exception if the line is empty or the score is invalid
+	 */
+	public static int parseScore( final String line ) throws Exception
+	{
+		int end = line.length();
+		while( ( end > 0 ) && ( line.charAt( end - 1 ) == '\t' ) )
 		{
-			String taxa = stripQuotes( st.nextToken() );
+			end--;
+		}
 
-			if( taxa.trim().equals( "-" ) )
+		final int start = line.lastIndexOf( '\t', end - 1 ) + 1;
+		if( end == 0 )
+		{
+			throw new Exception( "Incomplete RDP record: " + line );
+		}
+		if( start <= skipTabs( line, 0 ) )
+		{
+			return 0;
+		}
+		return parseScore( line, start, end );
+	}
+
+	/**
+	 * Add 1 to the count of each taxa at a configured level.  Lines have a sequence ID followed by
+	 * 1 set of: [-] taxa, rank, score for each rank reported.
+	 * @param line
+	 * @throws Exception
+	 */
+	public void addLine( final String line ) throws Exception
+	{
+		int start = skipTabs( line, 0 );
+		int end = nextToken( line, start );
+		setId( line.substring( start, end ) );
+		start = skipTabs( line, end );
+		while( start < line.length() )
+		{
+			end = nextToken( line, start );
+			final int taxaStart;
+			final int taxaEnd;
+			final boolean isQuoted;
+			if( isDash( line, start, end ) )
+			{
+				taxaStart = skipTabs( line, end );
+				taxaEnd = nextToken( line, taxaStart );
+				isQuoted = false;
+			}
+			else
 			{
-				taxa = st.nextToken();
+				taxaStart = start;
+				taxaEnd = end;
+				isQuoted = true;
 			}
 
-			final String level = st.nextToken();
-			if( taxonomyLevels.contains( level ) )
+			final int levelStart = skipTabs( line, taxaEnd );
+			final int levelEnd = nextToken( line, levelStart );
+			final String level = getLevel( line, levelStart, levelEnd );
+			if( level != null )
 			{
-				addCount( level, buildName( taxa, level ), 1 );
+				final String taxa = line.substring( taxaStart, taxaEnd );
+				addCount( level, buildName( isQuoted ? stripQuotes( taxa ): taxa, level ), 1 );
 			}
 
-			setScore( st.nextToken() );
+			final int scoreStart = skipTabs( line, levelEnd );
+			final int scoreEnd = nextToken( line, scoreStart );
+			score = parseScore( line, scoreStart, scoreEnd );
+			start = skipTabs( line, scoreEnd );
 		}
 
 		setFullNameCount( 1 );
@@ -63,37 +140,110 @@ public class RdpNode extends OtuNode
 		return score;
 	}
 
-	private void setScore( String scoreString ) throws Exception
+	/**
+	 * Return the configured taxonomy level matching the rank at start, or null if the rank is not
+	 * reported.
+	 */
+	private static String getLevel( final String line, final int start, final int end )
+	{
+		for( final String level: levels )
+		{
+			if( ( level.length() == ( end - start ) ) && line.regionMatches( start, level, 0, level.length() ) )
+			{
+				return level;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return TRUE if the token is "-", ignoring quotes and surrounding whitespace.
+	 */
+	private static boolean isDash( final String line, final int start, final int end )
 	{
-		scoreString = scoreString.trim();
+		int numChars = 0;
+		for( int i = start; i < end; i++ )
+		{
+			final char c = line.charAt( i );
+			if( ( c != '\"' ) && ( c > ' ' ) && ( ( c != '-' ) || ( ++numChars > 1 ) ) )
+			{
+				return false;
+			}
+		}
+		return numChars == 1;
+	}
 
-		if( scoreString.equals( "1" ) || scoreString.equals( "1.0" ) )
+	/**
+	 * Return the index of the next tab (end of the token that starts at start).
+	 * @throws Exception if there is no token at start
+	 */
+	private static int nextToken( final String line, final int start ) throws Exception
+	{
+		if( start >= line.length() )
 		{
-			score = 100;
+			throw new Exception( "Incomplete RDP record: " + line );
 		}
-		else if( scoreString.equals( "0" ) )
+		return nextTab( line, start );
+	}
+
+	private static int nextTab( final String line, final int start )
+	{
+		final int i = line.indexOf( '\t', start );
+		return ( i < 0 ) ? line.length(): i;
+	}
+
+	/**
+	 * Parse "1", "1.0", "0", or "0.X[X...]" as an int percentage without creating a String.
+	 */
+	private static int parseScore( final String line, int start, int end ) throws Exception
+	{
+		while( ( start < end ) && ( line.charAt( start ) <= ' ' ) )
 		{
-			score = 0;
+			start++;
 		}
-		else
+		while( ( end > start ) && ( line.charAt( end - 1 ) <= ' ' ) )
 		{
-			if( !scoreString.startsWith( "0." ) )
+			end--;
+		}
+
+		final int len = end - start;
+		final char first = ( len > 0 ) ? line.charAt( start ): ' ';
+		if( ( first == '1' ) && ( ( len == 1 ) || ( ( len == 3 ) && line.startsWith( ".0", start + 1 ) ) ) )
+		{
+			return 100;
+		}
+		if( ( first == '0' ) && ( len == 1 ) )
+		{
+			return 0;
+		}
+		if( ( first != '0' ) || ( len < 3 ) || ( line.charAt( start + 1 ) != '.' ) )
+		{
+			throw new Exception( "Unexpected score string: " + line.substring( start, end ) );
+		}
+
+		int val = 0;
+		for( int i = start + 2; i < end; i++ )
+		{
+			final int digit = line.charAt( i ) - '0';
+			if( ( digit < 0 ) || ( digit > 9 ) )
 			{
-				throw new Exception( "Unexpected score string: " + scoreString );
+				throw new Exception( "Unexpected score string: " + line.substring( start, end ) );
 			}
-
-			if( scoreString.length() == 3 )
+			val = ( val * 10 ) + digit;
+			if( val > 100 )
 			{
-				scoreString = scoreString + "0";
+				throw new Exception( "Unexpected score: " + line.substring( start + 2, end ) );
 			}
-
-			score = Integer.parseInt( scoreString.substring( 2 ) );
 		}
+		return ( len == 3 ) ? val * 10: val;
+	}
 
-		if( ( score < 0 ) || ( score > 100 ) )
+	private static int skipTabs( final String line, int i )
+	{
+		while( ( i < line.length() ) && ( line.charAt( i ) == '\t' ) )
 		{
-			throw new Exception( "Unexpected score: " + score );
+			i++;
 		}
+		return i;
 	}
-
 }
\ No newline at end of file
@@ -25,9 +25,45 @@ import bioLockJ.node.OtuNode;
  * FCC6MMAACXX:8:1101:1968:2100#GTATTCTC/1
  * d__Bacteria|p__Bacteroidetes|c__Bacteroidia|o__Bacteroidales|f__Bacteroidaceae|g__Bacteroides|s__Bacteroides_vulgatus
  *
+ * Lines are scanned one char at a time instead of with StringTokenizer + replaceAll.  The taxa
+ * level of each "|" delimited taxa is found from its first char (d__, p__, c__, etc.) with an
+ * array lookup.  The rare taxa that do not start with a level delim, or contain a 2nd "__", are
+ * handled the original way so names are unchanged.
+ *
+ * A single KrakenNode can hold the counts for every line of a sample: create it with the no-arg
+ * constructor and call addLine() for each line, or addReportLine() for each line of
+ * kraken-mpa-report output.
  */
 public class KrakenNode extends OtuNode
 {
+	private static final String[] delimByPrefix = new String[ 128 ];
+	private static final String[] levelByPrefix = new String[ 128 ];
+	private static boolean usePrefixLookup = true;
+
+	static
+	{
+		for( final Map.Entry<String, String> entry: getDelimToTaxaLevelMap().entrySet() )
+		{
+			final String levelDelim = entry.getKey();
+			if( isLevelDelim( levelDelim, 0, levelDelim.length() ) && ( levelDelim.length() == 3 )
+					&& ( levelDelim.charAt( 0 ) < 128 ) )
+			{
+				delimByPrefix[ levelDelim.charAt( 0 ) ] = levelDelim;
+				levelByPrefix[ levelDelim.charAt( 0 ) ] = entry.getValue();
+			}
+			else
+			{
+				usePrefixLookup = false;
+			}
+		}
+	}
+
+	/**
+	 * Create an empty node.  Counts are added by addLine().
+	 */
+	public KrakenNode()
+	{
+	}
 
 	/**
 	 * Here is where we map out the taxa.
@@ -37,30 +73,117 @@ public class KrakenNode extends OtuNode
 	 */
 	public KrakenNode( final String line ) throws Exception
 	{
-		final StringTokenizer st = new StringTokenizer( line, DELIM );
-		final Map<String, String> map = getDelimToTaxaLevelMap();
-		if( st.countTokens() == 2 )
+		addLine( line );
+	}
+
+	/**
+	 * Get the sequence ID (1st tab delimited column) without parsing the taxa.
+	 * @param line
+	 * @return
+	 */
+	public static String getSeqId( final String line )
+	{
+		final int start = skipTabs( line, 0 );
+		final int end = line.indexOf( '\t', start );
+		return line.substring( start, ( end < 0 ) ? line.length(): end );
+	}
+
+	/**
+	 * Add 1 to the count of each taxa in the line and set the node ID to the sequence ID.
+	 * @param line
+	 * @throws Exception
+	 */
+	public void addLine( final String line ) throws Exception
+	{
+		final int idStart = skipTabs( line, 0 );
+		final int idEnd = nextTab( line, idStart );
+		final int taxaStart = skipTabs( line, idEnd );
+		final int taxaEnd = nextTab( line, taxaStart );
+		checkColumns( line, taxaStart, taxaEnd );
+		setId( line.substring( idStart, idEnd ) );
+		addPath( line, taxaStart, taxaEnd, 1, false );
+		setFullNameCount( 1 );
+	}
+
+	/**
+	 * Add a line of kraken-mpa-report output: taxa path + # reads classified to the clade.  Each
+	 * clade has its own line, so only the last (deepest) taxa in the path is counted.
+	 * Example: d__Bacteria|p__Firmicutes|c__Clostridia	1234
+	 * @param line
+	 * @throws Exception
+	 */
+	public void addReportLine( final String line ) throws Exception
+	{
+		final int taxaStart = skipTabs( line, 0 );
+		final int taxaEnd = nextTab( line, taxaStart );
+		final int countStart = skipTabs( line, taxaEnd );
+		final int countEnd = nextTab( line, countStart );
+		checkColumns( line, countStart, countEnd );
+
+		final int count;
+		try
+		{
+			count = Integer.parseInt( line.substring( countStart, countEnd ).trim() );
+		}
+		catch( final NumberFormatException ex )
 		{
-			setId( st.nextToken() );
-			final StringTokenizer taxaToken = new StringTokenizer( st.nextToken(), KRAKEN_DELIM );
-			while( taxaToken.hasMoreTokens() )
+			throw new Exception( "Invalid Record = (" + line + ")\n"
+					+ "Kraken mpa-report count must be an integer. " );
+		}
+
+		if( count > 0 )
+		{
+			addPath( line, taxaStart, taxaEnd, count, true );
+		}
+		setFullNameCount( 1 );
+	}
+
+	/**
+	 * Add count to each taxa in the "|" delimited path between start and end, or only to the last
+	 * taxa if deepestOnly.  Names are built for every taxa since species names may depend on the
+	 * genus.
+	 */
+	private void addPath( final String line, int start, final int end, final int count,
+			final boolean deepestOnly ) throws Exception
+	{
+		int last = end;
+		if( deepestOnly )
+		{
+			while( ( last > start ) && isTaxaDelim( line.charAt( last - 1 ) ) )
 			{
-				String taxa = taxaToken.nextToken();
-				for( final String levelDelim: map.keySet() )
-				{
-					if( taxa.contains( levelDelim ) )
-					{
-						taxa = taxa.replaceAll( levelDelim, "" );
-						addCount( map.get( levelDelim ), buildName( taxa, levelDelim ), 1 );
-						break;
-					}
-				}
+				last--;
+			}
+			while( ( last > start ) && !isTaxaDelim( line.charAt( last - 1 ) ) )
+			{
+				last--;
+			}
+		}
+
+		while( start < end )
+		{
+			int taxaEnd = start;
+			while( ( taxaEnd < end ) && !isTaxaDelim( line.charAt( taxaEnd ) ) )
+			{
+				taxaEnd++;
 			}
 
-			setFullNameCount( 1 );
+			if( taxaEnd > start )
+			{
+				addTaxa( line, start, taxaEnd, ( !deepestOnly || ( start == last ) ) ? count: 0 );
+			}
+			start = taxaEnd + 1;
 		}
-		else
+	}
+
+	/**
+	 * Throw an Exception unless the line has exactly 2 tab delimited columns, where the 2nd column
+	 * is between start and end.
+	 */
+	private void checkColumns( final String line, final int start, final int end ) throws Exception
+	{
+		if( ( start == line.length() ) || ( skipTabs( line, end ) != line.length() ) )
 		{
+			final StringTokenizer st = new StringTokenizer( line, DELIM );
 			while( st.hasMoreTokens() )
 			{
 				warn( "Kraken token: " + st.nextToken() );
@@ -70,4 +193,94 @@ public class KrakenNode extends OtuNode
 					+ "Kraken output must have exactly 2 tab delimited columns per line. " );
 		}
 	}
+
+	/**
+	 * Add the taxa found in line between start and end.  If the taxa starts with a level delim
+	 * and has no other "__", the level delim can only be the prefix.  Otherwise look for each level
+	 * delim in the taxa as was done before.  If count is 0, only the name is built.
+	 * @param line
+	 * @param start
+	 * @param end
+	 * @param count
+	 * @throws Exception
+	 */
+	private void addTaxa( final String line, final int start, final int end, final int count ) throws Exception
+	{
+		if( usePrefixLookup && isLevelDelim( line, start, end ) && !hasLevelDelim( line, start + 3, end ) )
+		{
+			final char prefix = line.charAt( start );
+			if( ( prefix < 128 ) && ( levelByPrefix[ prefix ] != null ) )
+			{
+				final String name = buildName( line.substring( start + 3, end ), delimByPrefix[ prefix ] );
+				if( count > 0 )
+				{
+					addCount( levelByPrefix[ prefix ], name, count );
+				}
+			}
+			return;
+		}
+
+		String taxa = line.substring( start, end );
+		final Map<String, String> map = getDelimToTaxaLevelMap();
+		for( final String levelDelim: map.keySet() )
+		{
+			if( taxa.contains( levelDelim ) )
+			{
+				taxa = taxa.replaceAll( levelDelim, "" );
+				final String name = buildName( taxa, levelDelim );
+				if( count > 0 )
+				{
+					addCount( map.get( levelDelim ), name, count );
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Return TRUE if "__" is found between start and end.
+	 */
+	private static boolean hasLevelDelim( final String line, final int start, final int end )
+	{
+		for( int i = start; i < ( end - 1 ); i++ )
+		{
+			if( ( line.charAt( i ) == '_' ) && ( line.charAt( i + 1 ) == '_' ) )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return TRUE if the text at start looks like a level delim: 1 letter + "__"
+	 */
+	private static boolean isLevelDelim( final String line, final int start, final int end )
+	{
+		return ( ( end - start ) >= 3 ) && Character.isLetter( line.charAt( start ) )
+				&& ( line.charAt( start + 1 ) == '_' ) && ( line.charAt( start + 2 ) == '_' );
+	}
+
+	/**
+	 * KRAKEN_DELIM is used as a StringTokenizer delim set, so both "|" and "\\" split taxa.
+	 */
+	private static boolean isTaxaDelim( final char c )
+	{
+		return ( c == '|' ) || ( c == '\\' );
+	}
+
+	private static int nextTab( final String line, final int start )
+	{
+		final int i = line.indexOf( '\t', start );
+		return ( i < 0 ) ? line.length(): i;
+	}
+
+	private static int skipTabs( final String line, int i )
+	{
+		while( ( i < line.length() ) && ( line.charAt( i ) == '\t' ) )
+		{
+			i++;
+		}
+		return i;
+	}
 }
\ No newline at end of file
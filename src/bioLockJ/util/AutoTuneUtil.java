@@ -0,0 +1,120 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Aug 23, 2017
+ * @disclaimer 	This code is free software; you can redistribute it and/or
+ * 				modify it under the terms of the GNU General Public License
+ * 				as published by the Free Software Foundation; either version 2
+ * 				of the License, or (at your option) any later version,
+ * 				provided that any use properly credits the author.
+ * 				This program is distributed in the hope that it will be useful,
+ * 				but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 				MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * 				GNU General Public License for more details at http://www.gnu.org *
+ */
+package bioLockJ.util;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.HiddenFileFilter;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import bioLockJ.BioLockJ;
+
+/**
+ * AutoTuneUtil picks script.numThreads and script.batchSize from the host (or cluster job) and
+ * the input data when script.autoTune=Y.  Only undefined props are set, so any value in the
+ * prop file overrides the tuned value.
+ *
+ * numThreads = cluster.params procs if running on the cluster, otherwise the # available cores.
+ * batchSize = # samples / target # subscripts, reduced if needed so no subscript reads more than
+ * MAX_BATCH_GB of input.  On the cluster the target is MAX_CLUSTER_JOBS, since each subscript is
+ * a separate job.  Locally the main script runs its subscripts one after another, so more
+ * subscripts would not run in parallel: the target is 1 subscript and the cores are used through
+ * numThreads.  Paired reads are counted once per pair.
+ */
+public class AutoTuneUtil extends BioLockJ
+{
+	private static final long GB = 1024L * 1024L * 1024L;
+	private static final long MAX_BATCH_GB = 16L;
+	private static final int MAX_CLUSTER_JOBS = 100;
+	private static final long MB = 1024L * 1024L;
+	private static final long MIN_HEAP_MB_PER_1000_FILES = 512L;
+
+	/**
+	 * Set script.numThreads and script.batchSize if undefined and log each decision.
+	 * @throws Exception
+	 */
+	public static void tune() throws Exception
+	{
+		final int cores = Runtime.getRuntime().availableProcessors();
+		final long maxHeap = Runtime.getRuntime().maxMemory();
+		final Integer clusterProcs = runOnCluster ? getClusterNumProcs( getString( CLUSTER_PARAMS ) ): null;
+
+		long inputBytes = 0L;
+		int numFiles = 0;
+		int numFwReads = 0;
+		final String fwSuffix = isPairedRead ? getString( INPUT_FORWARD_READ_SUFFIX ): null;
+		final boolean countFwReads = ( fwSuffix != null ) && !fwSuffix.isEmpty();
+		final List<String> ignore = getList( INPUT_IGNORE_FILES );
+		for( final File dir: requireExistingDirectories( INPUT_DIRS ) )
+		{
+			final Collection<File> files = FileUtils.listFiles( dir, HiddenFileFilter.VISIBLE, TrueFileFilter.INSTANCE );
+			for( final File f: files )
+			{
+				if( ( ignore == null ) || !ignore.contains( f.getName() ) )
+				{
+					inputBytes += f.length();
+					numFiles++;
+					if( countFwReads && f.getName().contains( fwSuffix ) )
+					{
+						numFwReads++;
+					}
+				}
+			}
+		}
+
+		// each pair of reads is 1 sample, counted by its forward read
+		final int numSamples = !isPairedRead ? numFiles: countFwReads ? numFwReads: ( numFiles + 1 ) / 2;
+
+		log.info( "AutoTuneUtil host: " + cores + " cores; max heap = " + ( maxHeap / MB ) + " MB"
+				+ ( ( clusterProcs == null ) ? "": "; cluster job procs = " + clusterProcs ) + "; input = " + numFiles
+				+ " files, " + numSamples + " samples, " + ( inputBytes / MB ) + " MB" );
+
+		final int threads = ( clusterProcs == null ) ? cores: clusterProcs;
+		setIfUndefined( SCRIPT_NUM_THREADS, threads,
+				( clusterProcs == null ) ? "# available cores": CLUSTER_PARAMS + " " + CLUSTER_NUM_PROCESSORS );
+
+		final int targetScripts = runOnCluster ? MAX_CLUSTER_JOBS: 1;
+		int size = Math.max( 1, (int) Math.ceil( (double) numSamples / targetScripts ) );
+		if( numSamples > 0 )
+		{
+			final long avgBytes = Math.max( 1L, inputBytes / numSamples );
+			size = (int) Math.max( 1L, Math.min( size, ( MAX_BATCH_GB * GB ) / avgBytes ) );
+		}
+		setIfUndefined( SCRIPT_BATCH_SIZE, size, numSamples + " samples / " + targetScripts + " subscripts (max "
+				+ MAX_BATCH_GB + " GB input per subscript)" );
+
+		final long minHeap = MIN_HEAP_MB_PER_1000_FILES * MB * Math.max( 1, numSamples / 1000 );
+		if( maxHeap < minHeap )
+		{
+			log.warn( "AutoTuneUtil max heap (" + ( maxHeap / MB ) + " MB) may be too small to parse " + numSamples
+					+ " samples in memory.  Recommend -Xmx" + ( minHeap / MB ) + "m or higher." );
+		}
+	}
+
+	private static void setIfUndefined( final String prop, final int val, final String reason ) throws Exception
+	{
+		final Integer configured = getPositiveInteger( prop );
+		if( configured != null )
+		{
+			log.info( "AutoTuneUtil " + prop + "=" + configured + " (set in prop file, tuned value = " + val + ")" );
+			return;
+		}
+
+		config.setProperty( prop, String.valueOf( val ) );
+		log.info( "AutoTuneUtil " + prop + "=" + val + " (based on " + reason + ")" );
+	}
+}
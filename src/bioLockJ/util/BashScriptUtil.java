@@ -20,8 +20,13 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import bioLockJ.BioLockJ;
 import bioLockJ.Module;
 
@@ -30,6 +35,8 @@ import bioLockJ.Module;
  */
 public class BashScriptUtil extends BioLockJ
 {
+	private static final long MB = 1024L * 1024L;
+	private static final Set<PosixFilePermission> SCRIPT_PERMISSIONS = PosixFilePermissions.fromString( "rwxrwxr--" );
 	private static String failMessage = "failure";
 	private static int scriptBatchSize = 0;
 
@@ -82,6 +89,60 @@ public class BashScriptUtil extends BioLockJ
 		}
 	}
 
+	/**
+	 * In job array mode (cluster.arraySwitch is configured), the main script submits a single
+	 * array job that runs every subscript.  The array script uses the task index (found in the
+	 * cluster.arrayIndexVar environment variable) to select which subscript to run, so each
+	 * subscript still writes its own SUCCESS/FAIL flags.  If control.runOnCluster=N, the main
+	 * script stands in for the scheduler by running the array script once for each task index.
+	 * @param blje
+	 * @param allWriter
+	 * @param subScripts
+	 * @throws Exception
+	 */
+	public static void addArrayJob( final Module blje, final BufferedWriter allWriter, final List<File> subScripts )
+			throws Exception
+	{
+		final File arrayScript = new File( blje.getScriptDir().getAbsolutePath() + File.separator + ARRAY_SCRIPT
+				+ "_" + blje.getExecutorDir().getName() + ".sh" );
+		log.info( blje.getClass().getSimpleName() + " Create Array Script: " + arrayScript.getAbsolutePath()
+				+ " (# tasks = " + subScripts.size() + ")" );
+
+		createScriptFile( arrayScript );
+		final BufferedWriter writer = new BufferedWriter( new FileWriter( arrayScript ) );
+		writer.write( SHEBANG );
+		writer.write( runOnCluster ? ( clusterParams + "\n" ): "" );
+		writer.write( "### This script runs subscript #$" + clusterArrayIndexVar + " of this job array ### \n" );
+		writer.write( "subscripts=( \n" );
+		for( final File subScript: subScripts )
+		{
+			writer.write( INDENT + subScript.getAbsolutePath() + " \n" );
+		}
+		writer.write( ") \n" );
+		writer.write( "if [[ -z \"$" + clusterArrayIndexVar + "\" ]]; then \n" );
+		writer.write( INDENT + "echo \"" + clusterArrayIndexVar + " undefined - cannot select subscript\" \n" );
+		writer.write( INDENT + "exit 1 \n" );
+		writer.write( "fi \n" );
+		writer.write( "${subscripts[$(( $" + clusterArrayIndexVar + " - 1 ))]} \n" );
+		writer.flush();
+		writer.close();
+
+		if( runOnCluster )
+		{
+			final String range = "1-" + subScripts.size();
+			final String arraySwitch = clusterArraySwitch.endsWith( "=" ) ? clusterArraySwitch + range
+					: clusterArraySwitch + " " + range;
+			addMainScriptLine( allWriter, clusterCommand + " " + arraySwitch + " " + arrayScript.getAbsolutePath() );
+		}
+		else
+		{
+			for( int i = 1; i <= subScripts.size(); i++ )
+			{
+				addMainScriptLine( allWriter, clusterArrayIndexVar + "=" + i + " " + arrayScript.getAbsolutePath() );
+			}
+		}
+	}
+
 	/**
 	 * Adds cluster modules to script.
 	 * @param writer
@@ -97,7 +158,8 @@ public class BashScriptUtil extends BioLockJ
 	}
 
 	/**
-	 * Scripts are build for the Module based on the data lines provided.
+	 * Scripts are build for the Module based on the data lines provided.  The size of each file is
+	 * used as the sample size if script.batchByFileSize=Y.
 	 * @param blje
 	 * @param data - classifier lines for the bash script
 	 * @param files - failure flag files, just used for their names.
@@ -105,6 +167,20 @@ public class BashScriptUtil extends BioLockJ
 	 */
 	public static void buildScripts( final Module blje, final List<List<String>> data, final List<File> files )
 			throws Exception
+	{
+		buildScripts( blje, data, files, getFileSizes( files ) );
+	}
+
+	/**
+	 * Scripts are build for the Module based on the data lines provided.
+	 * @param blje
+	 * @param data - classifier lines for the bash script
+	 * @param files - failure flag files, just used for their names.
+	 * @param sampleSizes - total input file size of each data element, used if script.batchByFileSize=Y
+	 * @throws Exception
+	 */
+	public static void buildScripts( final Module blje, final List<List<String>> data, final List<File> files,
+			final List<Long> sampleSizes ) throws Exception
 	{
 		final int count = count( files );
 		log.info( blje.getClass().getSimpleName() + " Building bash scripts: # Sequence Files =" + data.size()
@@ -113,45 +189,44 @@ public class BashScriptUtil extends BioLockJ
 
 		final BufferedWriter allWriter = new BufferedWriter( new FileWriter( blje.getMainScript(), true ) );
 		int scriptCount = 0;
-		int sampleCount = 0;
-		int samplesInScript = 0;
 		final int digits = new Integer( count ).toString().length();
-		boolean needNewScript = false;
-		File subScript = null;
-		BufferedWriter subScriptWriter = null;
-
 		final String failPath = blje.getFailureDir().getAbsolutePath() + File.separator;
+		final List<File> subScripts = new ArrayList<>();
 
-		for( final List<String> lines: data )
+		for( final List<Integer> batch: getBatches( data, scriptBatchSize, sampleSizes ) )
 		{
-			if( lines.size() == 0 )
-			{
-				throw new Exception(
-						blje.getClass().getSimpleName() + " has no lines in " + blje.getMainScript() + " subscript!" );
-			}
-			if( ( subScript == null ) || needNewScript )
+			final File subScript = createSubScript( blje, allWriter, scriptCount++, digits );
+			subScripts.add( subScript );
+			final BufferedWriter subScriptWriter = new BufferedWriter( new FileWriter( subScript, true ) );
+			for( final Integer index: batch )
 			{
-				subScript = createSubScript( blje, allWriter, scriptCount++, digits );
-				subScriptWriter = new BufferedWriter( new FileWriter( subScript, true ) );
-			}
+				final List<String> lines = data.get( index );
+				if( lines.size() == 0 )
+				{
+					throw new Exception(
+							blje.getClass().getSimpleName() + " has no lines in " + blje.getMainScript() + " subscript!" );
+				}
 
-			String failMsg = failMessage;
-			if( count > 0 )
-			{
-				failMsg = files.get( sampleCount ).getName();
-			}
+				String failMsg = failMessage;
+				if( count > 0 )
+				{
+					failMsg = files.get( index ).getName();
+				}
 
-			addDependantLinesToScript( subScriptWriter, failPath, failMsg, lines );
-			needNewScript = needNewScript( ++samplesInScript, ++sampleCount, data.size() );
-			if( needNewScript || ( sampleCount == data.size() ) )
-			{
-				samplesInScript = 0;
-				closeScript( subScriptWriter, subScript );
-				printFile( subScript );
+				addDependantLinesToScript( subScriptWriter, failPath, failMsg, lines );
 			}
+
+			closeScript( subScriptWriter, subScript );
+			printFile( subScript );
+		}
+
+		if( ( clusterArraySwitch != null ) && !subScripts.isEmpty() )
+		{
+			addArrayJob( blje, allWriter, subScripts );
 		}
 
 		closeScript( allWriter, blje.getMainScript() );
+		LogUtil.summarize( blje.getClass().getSimpleName() + " Create Sub Script" );
 		log.info( LOG_SPACER );
 		log.info( blje.getClass().getSimpleName() + " Bash scripts successfully generated" );
 		log.info( LOG_SPACER );
@@ -164,6 +239,13 @@ public class BashScriptUtil extends BioLockJ
 		buildScripts( blje, data, files );
 	}
 
+	public static void buildScripts( final Module blje, final List<List<String>> data, final List<File> files,
+			final List<Long> sampleSizes, final int size ) throws Exception
+	{
+		scriptBatchSize = size;
+		buildScripts( blje, data, files, sampleSizes );
+	}
+
 	/**
 	 * Some BioLockJExecutors do not have a line for each file, these pass a single fail message.
 	 * @param blje
@@ -199,6 +281,30 @@ public class BashScriptUtil extends BioLockJ
 		writer.close();
 	}
 
+	/**
+	 * Create an empty script file that is executable (rwxrwxr--) so no chmod process is needed.
+	 * The permissions are set again after creation since the file attribute is subject to umask.
+	 * If the file system does not support POSIX permissions, the file is simply set executable.
+	 * @param script
+	 * @throws Exception
+	 */
+	public static void createScriptFile( final File script ) throws Exception
+	{
+		try
+		{
+			if( !script.exists() )
+			{
+				Files.createFile( script.toPath(), PosixFilePermissions.asFileAttribute( SCRIPT_PERMISSIONS ) );
+			}
+			Files.setPosixFilePermissions( script.toPath(), SCRIPT_PERMISSIONS );
+		}
+		catch( final UnsupportedOperationException ex )
+		{
+			script.createNewFile();
+			script.setExecutable( true, false );
+		}
+	}
+
 	/**
 	 * Create the main script for the Module.
 	 * @param blje
@@ -209,7 +315,9 @@ public class BashScriptUtil extends BioLockJ
 	{
 		final File f = new File( blje.getScriptDir().getAbsolutePath() + File.separator + MAIN_SCRIPT + "_"
 				+ blje.getExecutorDir().getName() + ".sh" );
+		createScriptFile( f );
 		final BufferedWriter writer = new BufferedWriter( new FileWriter( f ) );
+		writer.write( SHEBANG );
 		writer.write( "### This script submits multiple subscripts for parallel processing ### \n" );
 		writer.write( "cd " + blje.getQsubDir().getAbsolutePath() + " \n" );
 		writer.write( ERROR_DETECTED + "=false \n" );
@@ -237,11 +345,14 @@ public class BashScriptUtil extends BioLockJ
 				+ main.substring( 2 ).replace( cType, "" );
 
 		final File script = new File( blje.getScriptDir().getAbsolutePath() + File.separator + jobName );
-		log.info( blje.getClass().getSimpleName() + " Create Sub Script: " + script.getAbsolutePath() );
+		final String logKey = blje.getClass().getSimpleName() + " Create Sub Script";
+		LogUtil.info( logKey, logKey + ": " + script.getAbsolutePath() );
+		createScriptFile( script );
 		final BufferedWriter writer = new BufferedWriter( new FileWriter( script ) );
 
 		final String executeCommand = ( runOnCluster ? ( clusterCommand + " " ): "" ) + script.getAbsolutePath();
 
+		writer.write( SHEBANG );
 		writer.write( runOnCluster ? ( clusterParams + "\n" ): "" );
 		addModules( writer, blje );
 		writer.write( ERROR_DETECTED + "=false \n" );
@@ -249,42 +360,168 @@ public class BashScriptUtil extends BioLockJ
 		writer.flush();
 		writer.close();
 
-		allWriter.write( "if [[ $" + ERROR_DETECTED + " == false ]]; then \n" );
-		allWriter.write( INDENT + executeCommand + "\n" );
-		allWriter.write( INDENT + EXIT_CODE + "=$? \n" );
-		allWriter.write( INDENT + "if [[ $" + EXIT_CODE + " != \"0\" ]]; then \n" );
-		allWriter.write( INDENT + INDENT + ERROR_DETECTED + "=true \n" );
-		allWriter.write( INDENT + INDENT + FAILURE_CODE + "=$" + EXIT_CODE + " \n" );
-		allWriter.write( INDENT + "fi \n" );
-		allWriter.write( "fi \n" );
-		allWriter.flush();
+		if( clusterArraySwitch == null )
+		{
+			addMainScriptLine( allWriter, executeCommand );
+		}
+
 		blje.addScriptFile( script );
 		return script;
 	}
 
 	/**
-	 * Determine if a new script is needed - do #samples = batch size?
-	 * @param samplesInScript
-	 * @param sampleCount
-	 * @param totalSampleCount
-	 * @return
+	 * Group the data indexes into subscript batches of (size) samples, keeping the original order.
+	 * If script.batchByFileSize=Y, the same number of batches are built, but each sample is assigned
+	 * (largest first) to the batch with the smallest total input file size, so subscripts have
+	 * roughly equal runtimes.  Only the sample input files are weighed (not databases or other files
+	 * shared by every sample), so sampleSizes must have 1 size per data element, or the samples are
+	 * batched in order and a warning is logged.
+	 * @param data - lines for each sample
+	 * @param size - max number of samples per batch, if not batching by file size
+	 * @param sampleSizes - total input file size of each sample
+	 * @return list of batches, each a list of data indexes
 	 */
-	private static boolean needNewScript( final int samplesInScript, final int sampleCount, final int totalSampleCount )
+	public static List<List<Integer>> getBatches( final List<List<String>> data, final int size,
+			final List<Long> sampleSizes )
 	{
-		if( ( scriptBatchSize > 0 ) && ( samplesInScript == scriptBatchSize ) && ( sampleCount < totalSampleCount ) )
+		final int numBatches = ( size > 0 ) ? ( ( data.size() + size - 1 ) / size ): Math.min( 1, data.size() );
+		final List<List<Integer>> batches = new ArrayList<>();
+		for( int i = 0; i < numBatches; i++ )
+		{
+			batches.add( new ArrayList<Integer>() );
+		}
+
+		final long[] costs = new long[ data.size() ];
+		long totalCost = 0L;
+		if( batchByFileSize && ( numBatches > 1 ) )
 		{
-			return true;
+			if( ( sampleSizes != null ) && ( sampleSizes.size() == data.size() ) )
+			{
+				for( int i = 0; i < data.size(); i++ )
+				{
+					costs[ i ] = sampleSizes.get( i );
+					totalCost += costs[ i ];
+				}
+			}
+
+			if( totalCost == 0L )
+			{
+				final int numSizes = ( sampleSizes == null ) ? 0: sampleSizes.size();
+				log.warn( "BashScriptUtil ignored " + SCRIPT_BATCH_BY_FILE_SIZE + "=Y: "
+						+ ( ( numSizes == data.size() ) ? "all input files are empty"
+								: "found " + numSizes + " input file sizes for " + data.size() + " samples" )
+						+ ", so samples are batched in order" );
+			}
+		}
+
+		if( totalCost == 0L )
+		{
+			for( int i = 0; i < data.size(); i++ )
+			{
+				batches.get( ( size > 0 ) ? ( i / size ): 0 ).add( i );
+			}
+			return batches;
+		}
+
+		final List<Integer> indexes = new ArrayList<>();
+		for( int i = 0; i < data.size(); i++ )
+		{
+			indexes.add( i );
+		}
+		Collections.sort( indexes, ( a, b ) -> Long.compare( costs[ b ], costs[ a ] ) );
+
+		final long[] batchCosts = new long[ numBatches ];
+		for( final Integer index: indexes )
+		{
+			int target = 0;
+			for( int i = 1; i < numBatches; i++ )
+			{
+				if( batchCosts[ i ] < batchCosts[ target ] )
+				{
+					target = i;
+				}
+			}
+			batchCosts[ target ] += costs[ index ];
+			batches.get( target ).add( index );
 		}
 
-		return false;
+		long minCost = Long.MAX_VALUE;
+		long maxCost = 0L;
+		for( int i = 0; i < numBatches; i++ )
+		{
+			Collections.sort( batches.get( i ) );
+			minCost = Math.min( minCost, batchCosts[ i ] );
+			maxCost = Math.max( maxCost, batchCosts[ i ] );
+		}
+
+		log.info( "BashScriptUtil balanced " + data.size() + " samples into " + numBatches
+				+ " batches by input file size: smallest batch = " + ( minCost / MB ) + " MB; largest batch = "
+				+ ( maxCost / MB ) + " MB" );
+
+		return batches;
+	}
+
+	/**
+	 * Get the size of each file, in the same order.
+	 * @param files
+	 * @return file sizes, or null if files is null
+	 */
+	public static List<Long> getFileSizes( final List<File> files )
+	{
+		if( files == null )
+		{
+			return null;
+		}
+
+		final List<Long> sizes = new ArrayList<>();
+		for( final File file: files )
+		{
+			sizes.add( file.length() );
+		}
+		return sizes;
+	}
+
+	/**
+	 * Add a command to the main script, which is skipped if a previous command failed.  If failed
+	 * subscripts are retried (script.numRetries > 0), every command is run so each subscript has a
+	 * SUCCESS or FAIL flag for ApplicationManager to check.
+	 * @param allWriter
+	 * @param executeCommand
+	 * @throws Exception
+	 */
+	private static void addMainScriptLine( final BufferedWriter allWriter, final String executeCommand )
+			throws Exception
+	{
+		final String indent = ( numRetries > 0 ) ? "": INDENT;
+		if( numRetries == 0 )
+		{
+			allWriter.write( "if [[ $" + ERROR_DETECTED + " == false ]]; then \n" );
+		}
+		allWriter.write( indent + executeCommand + "\n" );
+		allWriter.write( indent + EXIT_CODE + "=$? \n" );
+		allWriter.write( indent + "if [[ $" + EXIT_CODE + " != \"0\" ]]; then \n" );
+		allWriter.write( indent + INDENT + ERROR_DETECTED + "=true \n" );
+		allWriter.write( indent + INDENT + FAILURE_CODE + "=$" + EXIT_CODE + " \n" );
+		allWriter.write( indent + "fi \n" );
+		if( numRetries == 0 )
+		{
+			allWriter.write( "fi \n" );
+		}
+		allWriter.flush();
 	}
 
 	/**
-	 * Print the bash script to the log file.
+	 * Print the bash script to the log file.  Skipped unless DEBUG is enabled so scripts are not
+	 * read back from disk for nothing.
 	 * @param file
 	 */
 	private static void printFile( final File file )
 	{
+		if( !log.isDebugEnabled() )
+		{
+			return;
+		}
+
 		log.debug( "BashScriptUtil PRINT FILE => " + file.getAbsolutePath() );
 		try
 		{
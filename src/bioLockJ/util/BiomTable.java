@@ -0,0 +1,589 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Aug 25, 2017
+ * @disclaimer 	This code is free software; you can redistribute it and/or
+ * 				modify it under the terms of the GNU General Public License
+ * 				as published by the Free Software Foundation; either version 2
+ * 				of the License, or (at your option) any later version,
+ * 				provided that any use properly credits the author.
+ * 				This program is distributed in the hope that it will be useful,
+ * 				but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 				MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * 				GNU General Public License for more details at http://www.gnu.org *
+ */
+package bioLockJ.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BiomTable reads a JSON BIOM (version 1.0) OTU table, as written by QIIME or by
+ * "biom convert --to-json".  Only the parts BioLockJ needs are kept: the column (sample) IDs, the
+ * row (OTU) taxonomy, and the non-zero counts stored as (row, column, value) entries, so sparse
+ * and dense tables use the same memory.  Each data value is read into one reused buffer and plain
+ * decimals (such as 419.0) are converted digit by digit, so no object is built per value.  All
+ * other fields are parsed as Maps, Lists, Strings, Doubles & Booleans.
+ *
+ * JSON format: {"matrix_type": "sparse", "rows": [{"id": "OTU1", "metadata": {"taxonomy":
+ * ["k__Bacteria", "p__Firmicutes", ...]}}, ...], "columns": [{"id": "3A.1", ...}, ...],
+ * "data": [[row, col, value], ...]} - dense tables store one array of values per row.
+ */
+public class BiomTable
+{
+	private static final String DENSE = "dense";
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int MAX_EXACT_DIGITS = 15;
+	private static final double[] POWERS_OF_TEN = new double[ MAX_EXACT_DIGITS + 1 ];
+	private static final String SPARSE = "sparse";
+	private int[] cols = new int[ INITIAL_CAPACITY ];
+	private final List<String> columnIds = new ArrayList<>();
+	private String matrixType = null;
+	private final StringBuilder number = new StringBuilder();
+	private int numEntries = 0;
+	private BufferedReader reader = null;
+	private int[] rows = new int[ INITIAL_CAPACITY ];
+	private final List<String> taxonomy = new ArrayList<>();
+	private double[] values = new double[ INITIAL_CAPACITY ];
+
+	static
+	{
+		POWERS_OF_TEN[ 0 ] = 1.0;
+		for( int i = 1; i < POWERS_OF_TEN.length; i++ )
+		{
+			POWERS_OF_TEN[ i ] = POWERS_OF_TEN[ i - 1 ] * 10.0;
+		}
+	}
+
+	private BiomTable()
+	{
+	}
+
+	/**
+	 * Read the JSON BIOM file.
+	 * @param file
+	 * @return
+	 * @throws Exception
+	 */
+	public static BiomTable read( final File file ) throws Exception
+	{
+		final BiomTable table = new BiomTable();
+		table.reader = new BufferedReader( new FileReader( file ) );
+		try
+		{
+			table.parse();
+		}
+		catch( final Exception ex )
+		{
+			throw new Exception( "Invalid JSON BIOM file: " + file.getAbsolutePath() + " : " + ex.getMessage(), ex );
+		}
+		finally
+		{
+			table.reader.close();
+			table.reader = null;
+		}
+		return table;
+	}
+
+	/**
+	 * Get the column IDs (sample IDs) in column order.
+	 * @return
+	 */
+	public List<String> getColumnIds()
+	{
+		return columnIds;
+	}
+
+	/**
+	 * Get the column index of the entry.
+	 * @param entry
+	 * @return
+	 */
+	public int getCol( final int entry )
+	{
+		return cols[ entry ];
+	}
+
+	/**
+	 * Get the # non-zero entries.
+	 * @return
+	 */
+	public int getNumEntries()
+	{
+		return numEntries;
+	}
+
+	/**
+	 * Get the # rows (OTUs).
+	 * @return
+	 */
+	public int getNumRows()
+	{
+		return taxonomy.size();
+	}
+
+	/**
+	 * Get the row index of the entry.
+	 * @param entry
+	 * @return
+	 */
+	public int getRow( final int entry )
+	{
+		return rows[ entry ];
+	}
+
+	/**
+	 * Get the taxonomy of the row as a QIIME taxa string, such as k__Bacteria;p__Firmicutes.
+	 * Rows without taxonomy metadata return an empty String.
+	 * @param row
+	 * @return
+	 */
+	public String getTaxonomy( final int row )
+	{
+		return taxonomy.get( row );
+	}
+
+	/**
+	 * Get the value of the entry.
+	 * @param entry
+	 * @return
+	 */
+	public double getValue( final int entry )
+	{
+		return values[ entry ];
+	}
+
+	/**
+	 * Save the entry if the value is non-zero (or if keepZero).
+	 */
+	private void addEntry( final int row, final int col, final double value, final boolean keepZero )
+	{
+		if( ( value == 0 ) && !keepZero )
+		{
+			return;
+		}
+
+		if( numEntries == values.length )
+		{
+			rows = Arrays.copyOf( rows, numEntries * 2 );
+			cols = Arrays.copyOf( cols, numEntries * 2 );
+			values = Arrays.copyOf( values, numEntries * 2 );
+		}
+
+		rows[ numEntries ] = row;
+		cols[ numEntries ] = col;
+		values[ numEntries++ ] = value;
+	}
+
+	private void expect( final char c ) throws Exception
+	{
+		final int next = nextToken();
+		if( next != c )
+		{
+			throw new Exception( "Expected '" + c + "' but found: " + ( ( next < 0 ) ? "EOF": "'" + (char) next + "'" ) );
+		}
+	}
+
+	/**
+	 * Read the next non-whitespace character.
+	 */
+	private int nextToken() throws Exception
+	{
+		int c = reader.read();
+		while( ( c >= 0 ) && Character.isWhitespace( c ) )
+		{
+			c = reader.read();
+		}
+		return c;
+	}
+
+	/**
+	 * Parse the top level object, keeping matrix_type, rows, columns & data.
+	 */
+	@SuppressWarnings("unchecked")
+	private void parse() throws Exception
+	{
+		expect( '{' );
+		List<Object> rowList = null;
+		List<Object> columnList = null;
+		boolean dataIsRaw = false;
+		int c = nextToken();
+		while( c != '}' )
+		{
+			if( c == ',' )
+			{
+				c = nextToken();
+			}
+			if( c != '"' )
+			{
+				throw new Exception( "Expected field name but found: " + ( ( c < 0 ) ? "EOF": "'" + (char) c + "'" ) );
+			}
+
+			final String key = parseString();
+			expect( ':' );
+			if( key.equals( "data" ) )
+			{
+				dataIsRaw = ( matrixType == null );
+				parseData();
+			}
+			else
+			{
+				final Object val = parseValue( nextToken() );
+				if( key.equals( "matrix_type" ) )
+				{
+					matrixType = (String) val;
+				}
+				else if( key.equals( "rows" ) )
+				{
+					rowList = (List<Object>) val;
+				}
+				else if( key.equals( "columns" ) )
+				{
+					columnList = (List<Object>) val;
+				}
+			}
+			c = nextToken();
+		}
+
+		if( !SPARSE.equals( matrixType ) && !DENSE.equals( matrixType ) )
+		{
+			throw new Exception( "Unsupported matrix_type: " + matrixType );
+		}
+		if( ( rowList == null ) || ( columnList == null ) )
+		{
+			throw new Exception( "rows and columns are required" );
+		}
+		if( dataIsRaw && SPARSE.equals( matrixType ) )
+		{
+			toSparse();
+		}
+		else if( dataIsRaw )
+		{
+			removeZeros();
+		}
+
+		for( final Object col: columnList )
+		{
+			columnIds.add( String.valueOf( ( (Map<String, Object>) col ).get( "id" ) ) );
+		}
+
+		for( final Object row: rowList )
+		{
+			final Object meta = ( (Map<String, Object>) row ).get( "metadata" );
+			final Object taxa = ( meta instanceof Map ) ? ( (Map<String, Object>) meta ).get( "taxonomy" ): null;
+			final StringBuffer sb = new StringBuffer();
+			if( taxa instanceof List )
+			{
+				for( final Object level: (List<Object>) taxa )
+				{
+					sb.append( ( ( sb.length() > 0 ) ? ";": "" ) + String.valueOf( level ).trim() );
+				}
+			}
+			else if( taxa != null )
+			{
+				for( final String level: taxa.toString().split( ";" ) )
+				{
+					sb.append( ( ( sb.length() > 0 ) ? ";": "" ) + level.trim() );
+				}
+			}
+			taxonomy.add( sb.toString() );
+		}
+
+		for( int i = 0; i < numEntries; i++ )
+		{
+			if( ( rows[ i ] < 0 ) || ( rows[ i ] >= taxonomy.size() ) || ( cols[ i ] < 0 )
+					|| ( cols[ i ] >= columnIds.size() ) )
+			{
+				throw new Exception( "Data entry [" + rows[ i ] + ", " + cols[ i ] + "] outside of shape ["
+						+ taxonomy.size() + ", " + columnIds.size() + "]" );
+			}
+		}
+	}
+
+	/**
+	 * Parse the data array.  If matrix_type is not known yet, every value (including zeros) is
+	 * saved as row = index of the inner array, col = index within it, and converted by toSparse()
+	 * if the table turns out to be sparse.
+	 */
+	private void parseData() throws Exception
+	{
+		final boolean isSparse = SPARSE.equals( matrixType );
+		final boolean isRaw = ( matrixType == null );
+		final double[] triple = new double[ 3 ];
+		expect( '[' );
+		int row = 0;
+		int c = nextToken();
+		while( c != ']' )
+		{
+			if( c == ',' )
+			{
+				c = nextToken();
+			}
+			if( c != '[' )
+			{
+				throw new Exception( "Expected '[' in data but found: " + ( ( c < 0 ) ? "EOF": "'" + (char) c + "'" ) );
+			}
+
+			int col = 0;
+			c = nextToken();
+			while( c != ']' )
+			{
+				if( c == ',' )
+				{
+					c = nextToken();
+				}
+
+				number.setLength( 0 );
+				while( ( c >= 0 ) && ( c != ',' ) && ( c != ']' ) && !Character.isWhitespace( c ) )
+				{
+					number.append( (char) c );
+					c = reader.read();
+				}
+				if( Character.isWhitespace( c ) )
+				{
+					c = nextToken();
+				}
+
+				final double val = parseNumber();
+				if( isSparse )
+				{
+					if( col < 3 )
+					{
+						triple[ col ] = val;
+					}
+				}
+				else
+				{
+					addEntry( row, col, val, isRaw );
+				}
+				col++;
+			}
+
+			if( isSparse )
+			{
+				if( col != 3 )
+				{
+					throw new Exception( "Sparse data entry #" + row + " has " + col + " values (expected 3)" );
+				}
+				addEntry( (int) triple[ 0 ], (int) triple[ 1 ], triple[ 2 ], false );
+			}
+			row++;
+			c = nextToken();
+		}
+	}
+
+	/**
+	 * Parse the data value in the number buffer.  A plain decimal with up to 15 digits (such as
+	 * 419.0 or -0.25) is converted as digits / power of 10, which is exact for both, so the result
+	 * is the same as Double.parseDouble().  Any other format (such as 1.2E-4) is parsed with
+	 * Double.parseDouble().
+	 */
+	private double parseNumber()
+	{
+		final int len = number.length();
+		final boolean negative = ( len > 0 ) && ( number.charAt( 0 ) == '-' );
+		long digits = 0L;
+		int numDigits = 0;
+		int scale = -1;
+		int i = negative ? 1: 0;
+		while( i < len )
+		{
+			final char c = number.charAt( i++ );
+			if( ( c >= '0' ) && ( c <= '9' ) && ( numDigits < MAX_EXACT_DIGITS ) )
+			{
+				digits = ( digits * 10 ) + ( c - '0' );
+				numDigits++;
+				scale += ( scale < 0 ) ? 0: 1;
+			}
+			else if( ( c == '.' ) && ( scale < 0 ) )
+			{
+				scale = 0;
+			}
+			else
+			{
+				return Double.parseDouble( number.toString() );
+			}
+		}
+
+		if( numDigits == 0 )
+		{
+			return Double.parseDouble( number.toString() );
+		}
+
+		final double val = digits / POWERS_OF_TEN[ Math.max( scale, 0 ) ];
+		return negative ? -val: val;
+	}
+
+	/**
+	 * Parse a JSON value starting with character c.
+	 */
+	private Object parseValue( int c ) throws Exception
+	{
+		if( c == '"' )
+		{
+			return parseString();
+		}
+		if( c == '{' )
+		{
+			final Map<String, Object> map = new LinkedHashMap<>();
+			c = nextToken();
+			while( c != '}' )
+			{
+				if( c == ',' )
+				{
+					c = nextToken();
+				}
+				if( c != '"' )
+				{
+					throw new Exception( "Expected field name but found: " + ( ( c < 0 ) ? "EOF": "'" + (char) c + "'" ) );
+				}
+				final String key = parseString();
+				expect( ':' );
+				map.put( key, parseValue( nextToken() ) );
+				c = nextToken();
+			}
+			return map;
+		}
+		if( c == '[' )
+		{
+			final List<Object> list = new ArrayList<>();
+			c = nextToken();
+			while( c != ']' )
+			{
+				if( c == ',' )
+				{
+					c = nextToken();
+				}
+				list.add( parseValue( c ) );
+				c = nextToken();
+			}
+			return list;
+		}
+		if( c < 0 )
+		{
+			throw new Exception( "Unexpected EOF" );
+		}
+
+		final StringBuffer sb = new StringBuffer();
+		sb.append( (char) c );
+		reader.mark( 1 );
+		c = reader.read();
+		while( ( c >= 0 ) && ( c != ',' ) && ( c != ']' ) && ( c != '}' ) && !Character.isWhitespace( c ) )
+		{
+			sb.append( (char) c );
+			reader.mark( 1 );
+			c = reader.read();
+		}
+		reader.reset();
+
+		final String literal = sb.toString();
+		if( literal.equals( "null" ) )
+		{
+			return null;
+		}
+		if( literal.equals( "true" ) || literal.equals( "false" ) )
+		{
+			return Boolean.valueOf( literal );
+		}
+		return Double.valueOf( literal );
+	}
+
+	/**
+	 * Parse a JSON string after the opening quote.
+	 */
+	private String parseString() throws Exception
+	{
+		final StringBuffer sb = new StringBuffer();
+		int c = reader.read();
+		while( c != '"' )
+		{
+			if( c < 0 )
+			{
+				throw new Exception( "Unterminated string" );
+			}
+			if( c == '\\' )
+			{
+				c = reader.read();
+				if( c == 'u' )
+				{
+					final char[] hex = new char[ 4 ];
+					for( int i = 0; i < 4; i++ )
+					{
+						hex[ i ] = (char) reader.read();
+					}
+					c = Integer.parseInt( new String( hex ), 16 );
+				}
+				else if( c == 'n' )
+				{
+					c = '\n';
+				}
+				else if( c == 't' )
+				{
+					c = '\t';
+				}
+				else if( c == 'r' )
+				{
+					c = '\r';
+				}
+				else if( c == 'b' )
+				{
+					c = '\b';
+				}
+				else if( c == 'f' )
+				{
+					c = '\f';
+				}
+			}
+			sb.append( (char) c );
+			c = reader.read();
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Remove zero values saved as raw entries of a dense table.
+	 */
+	private void removeZeros()
+	{
+		final int numRaw = numEntries;
+		numEntries = 0;
+		for( int i = 0; i < numRaw; i++ )
+		{
+			if( values[ i ] != 0 )
+			{
+				rows[ numEntries ] = rows[ i ];
+				cols[ numEntries ] = cols[ i ];
+				values[ numEntries++ ] = values[ i ];
+			}
+		}
+	}
+
+	/**
+	 * Convert raw entries (one per value, read before matrix_type was known) to sparse entries,
+	 * where each inner array holds row, col & value.
+	 */
+	private void toSparse() throws Exception
+	{
+		final int numRaw = numEntries;
+		final int[] rawRows = Arrays.copyOf( rows, numRaw );
+		final int[] rawCols = Arrays.copyOf( cols, numRaw );
+		final double[] rawValues = Arrays.copyOf( values, numRaw );
+		numEntries = 0;
+		for( int i = 0; i < numRaw; i += 3 )
+		{
+			if( ( ( i + 2 ) >= numRaw ) || ( rawCols[ i + 2 ] != 2 ) || ( rawRows[ i ] != rawRows[ i + 2 ] )
+					|| ( ( ( i + 3 ) < numRaw ) && ( rawRows[ i + 3 ] == rawRows[ i ] ) ) )
+			{
+				throw new Exception( "Sparse data entry #" + rawRows[ i ] + " does not have 3 values" );
+			}
+			addEntry( (int) rawValues[ i ], (int) rawValues[ i + 1 ], rawValues[ i + 2 ], false );
+		}
+	}
+}
@@ -0,0 +1,298 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Jul 24, 2017
+ * @disclaimer 	This code is free software; you can redistribute it and/or
+ * 				modify it under the terms of the GNU General Public License
+ * 				as published by the Free Software Foundation; either version 2
+ * 				of the License, or (at your option) any later version,
+ * 				provided that any use properly credits the author.
+ * 				This program is distributed in the hope that it will be useful,
+ * 				but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 				MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * 				GNU General Public License for more details at http://www.gnu.org *
+ */
+package bioLockJ.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import bioLockJ.BioLockJ;
+
+/**
+ * ClassifierCacheUtil maintains a content-addressed cache of classifier output files shared
+ * across projects.  Each entry is keyed by the digest of the input sequence files plus the
+ * classifier version, switches, and database.  Cache hits are copied into the module output
+ * directory instead of running the classifier.  Cache size is bounded by removing the least
+ * recently used entries once classifier.cacheMaxSizeGB is exceeded.
+ */
+public class ClassifierCacheUtil extends BioLockJ
+{
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+	private static final String DIGEST_INDEX = "inputDigests.txt";
+	private static final long GB = 1024L * 1024L * 1024L;
+	private static final String TEMP_SUFFIX = ".tmp";
+	private static File cacheDir = null;
+	private static Map<String, String> digestIndex = new HashMap<>();
+	private static File indexDir = null;
+	private static Long maxCacheBytes = null;
+	private static int numHits = 0;
+	private static int numMisses = 0;
+
+	/**
+	 * Read the cache props.  If classifier.cacheDir is undefined, the cache is disabled.
+	 * @throws Exception
+	 */
+	public static void initialize() throws Exception
+	{
+		final String dir = getString( CLASSIFIER_CACHE_DIR );
+		indexDir = null;
+		digestIndex.clear();
+		if( ( dir == null ) || dir.trim().isEmpty() )
+		{
+			cacheDir = null;
+			return;
+		}
+
+		cacheDir = new File( dir );
+		if( !cacheDir.exists() && !cacheDir.mkdirs() )
+		{
+			throw new Exception( CLASSIFIER_CACHE_DIR + " could not be created: " + cacheDir.getAbsolutePath() );
+		}
+
+		final Integer maxGB = getPositiveInteger( CLASSIFIER_CACHE_MAX_GB );
+		maxCacheBytes = ( maxGB == null ) ? null: maxGB * GB;
+		indexDir = cacheDir;
+		loadDigestIndex();
+		log.info( "ClassifierCacheUtil using cache: " + cacheDir.getAbsolutePath()
+				+ ( ( maxGB == null ) ? "": " (max " + maxGB + " GB)" ) );
+	}
+
+	/**
+	 * If classifier.cacheDir is undefined, save input file digests in dir instead, so a module that
+	 * names its own files with getKey() does not read every input file again on each run.
+	 * @param dir
+	 * @throws Exception
+	 */
+	public static void initializeDigestIndex( final File dir ) throws Exception
+	{
+		if( cacheDir == null )
+		{
+			indexDir = dir;
+			loadDigestIndex();
+		}
+	}
+
+	/**
+	 * Return TRUE if classifier.cacheDir is configured.
+	 * @return
+	 */
+	public static boolean isEnabled()
+	{
+		return cacheDir != null;
+	}
+
+	/**
+	 * If a cached result exists for the given inputs + params, return the lines to copy it to the
+	 * outputFile.  Otherwise return the classifier lines followed by a line to add the new outputFile
+	 * to the cache.  The cache entry is written to a temp file and then moved so concurrent projects
+	 * never read a partial entry.
+	 *
+	 * @param inputs - input sequence files used to generate outputFile
+	 * @param outputFile - classifier output file
+	 * @param params - classifier exe, version, switches, and database
+	 * @param lines - classifier lines
+	 * @return
+	 * @throws Exception
+	 */
+	public static List<String> getLines( final List<File> inputs, final File outputFile, final String params,
+			final List<String> lines ) throws Exception
+	{
+		final File entry = new File( cacheDir.getAbsolutePath() + File.separator + getKey( inputs, params ) );
+		final List<String> cacheLines = new ArrayList<>();
+		if( entry.exists() )
+		{
+			numHits++;
+			entry.setLastModified( System.currentTimeMillis() );
+			log.debug( "ClassifierCacheUtil cache hit for " + outputFile.getName() + ": " + entry.getName() );
+			cacheLines.add( "cp " + entry.getAbsolutePath() + " " + outputFile.getAbsolutePath() );
+			return cacheLines;
+		}
+
+		numMisses++;
+		final String temp = entry.getAbsolutePath() + TEMP_SUFFIX + "$$";
+		cacheLines.addAll( lines );
+		cacheLines.add( "cp " + outputFile.getAbsolutePath() + " " + temp + " && mv -f " + temp + " "
+				+ entry.getAbsolutePath() );
+		return cacheLines;
+	}
+
+	/**
+	 * Log the hit rate and remove the least recently used entries until the cache is no larger
+	 * than classifier.cacheMaxSizeGB.  Entries hit by the current project were touched by
+	 * getLines(), so they are removed last.
+	 */
+	public static void cleanUp()
+	{
+		log.info( "ClassifierCacheUtil # cache hits = " + numHits + "; # cache misses = " + numMisses );
+		if( maxCacheBytes == null )
+		{
+			return;
+		}
+
+		final File[] entries = cacheDir.listFiles();
+		long totalBytes = 0L;
+		final List<File> cacheFiles = new ArrayList<>();
+		for( final File f: entries )
+		{
+			if( f.isFile() && !f.getName().equals( DIGEST_INDEX ) && !f.getName().contains( TEMP_SUFFIX ) )
+			{
+				cacheFiles.add( f );
+				totalBytes += f.length();
+			}
+		}
+
+		if( totalBytes <= maxCacheBytes )
+		{
+			return;
+		}
+
+		cacheFiles.sort( Comparator.comparingLong( File::lastModified ) );
+		for( final File f: cacheFiles )
+		{
+			if( totalBytes <= maxCacheBytes )
+			{
+				break;
+			}
+
+			final long size = f.length();
+			if( f.delete() )
+			{
+				totalBytes -= size;
+				log.debug( "ClassifierCacheUtil removed LRU cache entry: " + f.getName() );
+			}
+		}
+	}
+
+	/**
+	 * Digest the contents of a file.  Digests are saved in the cache dir (or the dir passed to
+	 * initializeDigestIndex) by path, size, and last modified date so the same input files are only
+	 * read once.
+	 * @param file
+	 * @return
+	 * @throws Exception
+	 */
+	public static String getDigest( final File file ) throws Exception
+	{
+		final String indexKey = getIndexKey( file );
+		String digest = digestIndex.get( indexKey );
+		if( digest != null )
+		{
+			return digest;
+		}
+
+		final MessageDigest md = MessageDigest.getInstance( DIGEST_ALGORITHM );
+		final byte[] buffer = new byte[ 1024 * 1024 ];
+		final InputStream in = new FileInputStream( file );
+		try
+		{
+			int numBytes;
+			while( ( numBytes = in.read( buffer ) ) != -1 )
+			{
+				md.update( buffer, 0, numBytes );
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+
+		digest = toHex( md.digest() );
+		digestIndex.put( indexKey, digest );
+		if( indexDir == null )
+		{
+			return digest;
+		}
+
+		final BufferedWriter writer = new BufferedWriter(
+				new FileWriter( new File( indexDir.getAbsolutePath() + File.separator + DIGEST_INDEX ), true ) );
+		writer.write( indexKey + DELIM + digest + "\n" );
+		writer.close();
+		return digest;
+	}
+
+	/**
+	 * The cache key is the digest of the input file digests + the classifier params.
+	 * @param inputs
+	 * @param params
+	 * @return
+	 * @throws Exception
+	 */
+	public static String getKey( final List<File> inputs, final String params ) throws Exception
+	{
+		final StringBuffer sb = new StringBuffer();
+		for( final File input: inputs )
+		{
+			sb.append( getDigest( input ) + "\n" );
+		}
+		sb.append( params );
+
+		final MessageDigest md = MessageDigest.getInstance( DIGEST_ALGORITHM );
+		return toHex( md.digest( sb.toString().getBytes( "UTF-8" ) ) );
+	}
+
+	private static String getIndexKey( final File file )
+	{
+		return file.getAbsolutePath() + DELIM + file.length() + DELIM + file.lastModified();
+	}
+
+	/**
+	 * Load the digests saved by previous projects.  Lines are: path, size, lastModified, digest.
+	 * @throws Exception
+	 */
+	private static void loadDigestIndex() throws Exception
+	{
+		digestIndex.clear();
+		final File index = new File( indexDir.getAbsolutePath() + File.separator + DIGEST_INDEX );
+		if( !index.exists() )
+		{
+			return;
+		}
+
+		final BufferedReader reader = new BufferedReader( new FileReader( index ) );
+		String line;
+		while( ( line = reader.readLine() ) != null )
+		{
+			final int lastTab = line.lastIndexOf( TAB );
+			final StringTokenizer st = new StringTokenizer( line, DELIM );
+			if( ( lastTab > 0 ) && ( st.countTokens() == 4 ) )
+			{
+				digestIndex.put( line.substring( 0, lastTab ), line.substring( lastTab + 1 ) );
+			}
+		}
+		reader.close();
+		log.debug( "ClassifierCacheUtil loaded " + digestIndex.size() + " input file digests" );
+	}
+
+	private static String toHex( final byte[] bytes )
+	{
+		final StringBuffer sb = new StringBuffer();
+		for( final byte b: bytes )
+		{
+			sb.append( String.format( "%02x", b ) );
+		}
+		return sb.toString();
+	}
+}
@@ -98,8 +98,9 @@ public class ConfigUtil extends Constants
 	/**
 	 * Convenience method for metaUtil access.
 	 * @return
+	 * @throws Exception
 	 */
-	public File getDescriptor()
+	public File getDescriptor() throws Exception
 	{
 		return getMetaUtil().getDescriptor();
 	}
@@ -107,8 +108,9 @@ public class ConfigUtil extends Constants
 	/**
 	 * Convenience method for metaUtil access.
 	 * @return
+	 * @throws Exception
 	 */
-	public String getDescriptorPath()
+	public String getDescriptorPath() throws Exception
 	{
 		return getDescriptor().getAbsolutePath();
 	}
@@ -116,8 +118,9 @@ public class ConfigUtil extends Constants
 	/**
 	 * Convenience method for metaUtil access.
 	 * @return
+	 * @throws Exception
 	 */
-	public File getMetadata()
+	public File getMetadata() throws Exception
 	{
 		return getMetaUtil().getMetadata();
 	}
@@ -125,8 +128,9 @@ public class ConfigUtil extends Constants
 	/**
 	 * Convenience method for metaUtil access.
 	 * @return
+	 * @throws Exception
 	 */
-	public String getMetaPath()
+	public String getMetaPath() throws Exception
 	{
 		return getMetadata().getAbsolutePath();
 	}
@@ -199,8 +203,9 @@ public class ConfigUtil extends Constants
 	/**
 	 * Set decriptor in meaUtil.
 	 * @param f
+	 * @throws Exception
 	 */
-	public void setDescriptor( final File f )
+	public void setDescriptor( final File f ) throws Exception
 	{
 		getMetaUtil().setDescriptor( f );
 	}
@@ -208,8 +213,9 @@ public class ConfigUtil extends Constants
 	/**
 	 * Set metadata file in meaUtil.
 	 * @param f
+	 * @throws Exception
 	 */
-	public void setMetadata( final File f )
+	public void setMetadata( final File f ) throws Exception
 	{
 		getMetaUtil().setMetadata( f );
 	}
@@ -0,0 +1,192 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Aug 21, 2017
+ * @disclaimer 	This code is free software; you can redistribute it and/or
+ * 				modify it under the terms of the GNU General Public License
+ * 				as published by the Free Software Foundation; either version 2
+ * 				of the License, or (at your option) any later version,
+ * 				provided that any use properly credits the author.
+ * 				This program is distributed in the hope that it will be useful,
+ * 				but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 				MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * 				GNU General Public License for more details at http://www.gnu.org *
+ */
+package bioLockJ.util;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Appender;
+import org.apache.log4j.AsyncAppender;
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.config.PropertySetter;
+import org.apache.log4j.helpers.OptionConverter;
+import bioLockJ.BioLockJ;
+
+/**
+ * LogUtil moves log file I/O off the pipeline threads and limits the volume of per-file messages.
+ *
+ * initialize() wraps the log4j file appender in the org.apache.log4j.AsyncAppender configured as
+ * log4j.appender.async in log4j.properties.  flush() closes the AsyncAppender so every buffered
+ * event is in the log file before it is attached to the notification email.
+ *
+ * info(key, msg) logs the first few messages for a key at INFO and the rest at DEBUG.  The
+ * number sent to DEBUG is reported once by summarize(key) at the end of the loop.
+ */
+public class LogUtil extends BioLockJ
+{
+	/**
+	 * Default # messages per key logged at INFO level.
+	 */
+	public static final int DEFAULT_LIMIT = 10;
+	private static final String ASYNC_APPENDER = "log4j.appender.async";
+	private static final String FILE_APPENDER = "file";
+	private static final String LOG4J_PROPS = "/log4j.properties";
+	private static AsyncAppender asyncAppender = null;
+	private static final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+	/**
+	 * Close the AsyncAppender, which writes all buffered events, and log to the file directly from
+	 * here on.
+	 */
+	public static void flush()
+	{
+		if( asyncAppender == null )
+		{
+			return;
+		}
+
+		final Logger root = LogManager.getRootLogger();
+		final FileAppender file = (FileAppender) asyncAppender.getAppender( FILE_APPENDER );
+		final String fileName = file.getFile(); // close() resets the file name
+		root.removeAppender( asyncAppender );
+		asyncAppender.close();
+		asyncAppender = null;
+		try
+		{
+			final FileAppender reopened = new FileAppender( file.getLayout(), fileName, true );
+			reopened.setName( FILE_APPENDER );
+			root.addAppender( reopened );
+		}
+		catch( final Exception ex )
+		{
+			log.error( "Unable to reopen log file: " + fileName, ex );
+		}
+	}
+
+	/**
+	 * Log the message at INFO level if fewer than DEFAULT_LIMIT messages have been logged for the
+	 * key, otherwise log at DEBUG level.
+	 * @param key
+	 * @param msg
+	 */
+	public static void info( final String key, final String msg )
+	{
+		info( key, msg, DEFAULT_LIMIT );
+	}
+
+	/**
+	 * Log the message at INFO level if fewer than limit messages have been logged for the key,
+	 * otherwise log at DEBUG level.
+	 * @param key
+	 * @param msg
+	 * @param limit
+	 */
+	public static void info( final String key, final String msg, final int limit )
+	{
+		final int count = counts.computeIfAbsent( key, k -> new AtomicInteger() ).incrementAndGet();
+		if( count <= limit )
+		{
+			log.info( msg );
+		}
+		else if( log.isDebugEnabled() )
+		{
+			log.debug( msg );
+		}
+	}
+
+	/**
+	 * Route the root logger file output through the AsyncAppender defined in log4j.properties.
+	 * Called once, after log4j has been configured with the project log file.  If log4j.properties
+	 * does not define log4j.appender.async, the log file is written synchronously.
+	 * @throws Exception if log4j.properties cannot be read
+	 */
+	public static void initialize() throws Exception
+	{
+		final Logger root = LogManager.getRootLogger();
+		final Appender file = root.getAppender( FILE_APPENDER );
+		if( ( asyncAppender != null ) || ( file == null ) )
+		{
+			return;
+		}
+
+		final Properties props = new Properties();
+		final InputStream in = LogUtil.class.getResourceAsStream( LOG4J_PROPS );
+		if( in == null )
+		{
+			return;
+		}
+		try
+		{
+			props.load( in );
+		}
+		finally
+		{
+			in.close();
+		}
+
+		final Object async = OptionConverter.instantiateByKey( props, ASYNC_APPENDER, AsyncAppender.class, null );
+		if( !( async instanceof AsyncAppender ) )
+		{
+			return;
+		}
+
+		asyncAppender = (AsyncAppender) async;
+		asyncAppender.setName( "async" );
+		PropertySetter.setProperties( asyncAppender, props, ASYNC_APPENDER + "." );
+
+		// removeAllAppenders() would close the file appender, so only it is removed
+		root.removeAppender( file );
+		asyncAppender.addAppender( file );
+		root.addAppender( asyncAppender );
+	}
+
+	/**
+	 * Flush the AsyncAppender and close all log4j appenders.
+	 */
+	public static void shutdown()
+	{
+		flush();
+		LogManager.shutdown();
+	}
+
+	/**
+	 * Log the # messages for the key that were logged at DEBUG level and reset the key.
+	 * @param key
+	 */
+	public static void summarize( final String key )
+	{
+		summarize( key, DEFAULT_LIMIT );
+	}
+
+	/**
+	 * Log the # messages for the key that were logged at DEBUG level and reset the key.
+	 * @param key
+	 * @param limit - same limit passed to info()
+	 */
+	public static void summarize( final String key, final int limit )
+	{
+		final AtomicInteger count = counts.remove( key );
+		if( ( count != null ) && ( count.get() > limit ) )
+		{
+			log.info( key + ": " + ( count.get() - limit ) + " more messages logged at DEBUG level (total = "
+					+ count.get() + ")" );
+		}
+	}
+}
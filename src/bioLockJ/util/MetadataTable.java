@@ -0,0 +1,370 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Jul 31, 2017
+ * @disclaimer 	This code is free software; you can redistribute it and/or
+ * 				modify it under the terms of the GNU General Public License
+ * 				as published by the Free Software Foundation; either version 2
+ * 				of the License, or (at your option) any later version,
+ * 				provided that any use properly credits the author.
+ * 				This program is distributed in the hope that it will be useful,
+ * 				but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 				MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * 				GNU General Public License for more details at http://www.gnu.org *
+ */
+package bioLockJ.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.lang.math.NumberUtils;
+
+/**
+ * MetadataTable stores the metadata spreadsheet by column instead of by row.  Column names and
+ * sample IDs are hashed to their index so every lookup is O(1).  Numeric (CONTINUOUS) columns
+ * are stored as double[] and all other columns are dictionary encoded as int[] codes into the
+ * list of distinct values, so repeated values such as "Y"/"N" are only stored once.
+ */
+public class MetadataTable
+{
+	private static final int INITIAL_CAPACITY = 64;
+	private int capacity = INITIAL_CAPACITY;
+	private final Map<String, Integer> colIndex = new HashMap<>();
+	private final List<String> colNames;
+	private final List<Column> columns = new ArrayList<>();
+	private String idName;
+	private final List<String> ids = new ArrayList<>();
+	private final Map<String, Integer> rowIndex = new LinkedHashMap<>();
+
+	/**
+	 * Create an empty table.
+	 * @param idName - header of the ID column
+	 * @param colNames - headers of the attribute columns
+	 * @param numericCols - attribute columns to store as double[]
+	 */
+	public MetadataTable( final String idName, final List<String> colNames, final Set<String> numericCols )
+	{
+		this.idName = idName;
+		this.colNames = new ArrayList<>( colNames );
+		rowIndex.put( idName, -1 );
+		int i = 0;
+		for( final String name: colNames )
+		{
+			colIndex.putIfAbsent( name, i++ );
+			columns.add( numericCols.contains( name ) ? new NumericColumn(): new DictionaryColumn() );
+		}
+	}
+
+	/**
+	 * Append a new column.  IDs not found in the values map are set to nullValue.
+	 * @param name
+	 * @param values - values keyed by ID
+	 * @param isNumeric - store as double[]
+	 * @param nullValue
+	 */
+	public void addColumn( final String name, final Map<String, ?> values, final boolean isNumeric,
+			final String nullValue )
+	{
+		final Column col = isNumeric ? new NumericColumn(): new DictionaryColumn();
+		for( int i = 0; i < ids.size(); i++ )
+		{
+			final Object val = values.get( ids.get( i ) );
+			col.set( i, ( val == null ) ? nullValue: val.toString() );
+		}
+
+		colIndex.putIfAbsent( name, columns.size() );
+		colNames.add( name );
+		columns.add( col );
+	}
+
+	/**
+	 * Add a row.  If the ID already exists, its values are replaced.  Missing values are set to
+	 * nullValue and extra values are ignored.
+	 * @param id
+	 * @param values
+	 * @param nullValue
+	 */
+	public void addRow( final String id, final List<String> values, final String nullValue )
+	{
+		Integer row = rowIndex.get( id );
+		if( row == null )
+		{
+			row = ids.size();
+			ids.add( id );
+			rowIndex.put( id, row );
+			if( row == capacity )
+			{
+				capacity *= 2;
+				for( final Column col: columns )
+				{
+					col.grow( capacity );
+				}
+			}
+		}
+
+		for( int i = 0; i < columns.size(); i++ )
+		{
+			columns.get( i ).set( row, ( i < values.size() ) ? values.get( i ): nullValue );
+		}
+	}
+
+	/**
+	 * Get the attribute column names (excludes the ID column).
+	 * @return
+	 */
+	public List<String> getColNames()
+	{
+		return Collections.unmodifiableList( colNames );
+	}
+
+	/**
+	 * Get the distinct values in a column, excluding the given value.
+	 * @param name
+	 * @param exclude
+	 * @return null if the column is undefined
+	 */
+	public Set<String> getDistinctValues( final String name, final String exclude )
+	{
+		final Integer col = colIndex.get( name );
+		if( col == null )
+		{
+			return null;
+		}
+
+		final Set<String> vals = columns.get( col ).getDistinctValues( ids.size() );
+		vals.remove( exclude );
+		return vals;
+	}
+
+	public String getIdName()
+	{
+		return idName;
+	}
+
+	/**
+	 * Get the ID column values, including the ID column header.
+	 * @return
+	 */
+	public Set<String> getIds()
+	{
+		return Collections.unmodifiableSet( rowIndex.keySet() );
+	}
+
+	/**
+	 * Get all attribute values for an ID.  The ID column header returns the column names.
+	 * @param id
+	 * @return null if the ID is undefined
+	 */
+	public List<String> getRow( final String id )
+	{
+		final Integer row = rowIndex.get( id );
+		if( row == null )
+		{
+			return null;
+		}
+		else if( row < 0 )
+		{
+			return getColNames();
+		}
+
+		final List<String> vals = new ArrayList<>( columns.size() );
+		for( final Column col: columns )
+		{
+			vals.add( col.get( row ) );
+		}
+		return vals;
+	}
+
+	/**
+	 * Get a single value.
+	 * @param id
+	 * @param name
+	 * @return null if the ID or column is undefined
+	 */
+	public String getValue( final String id, final String name )
+	{
+		final Integer row = rowIndex.get( id );
+		final Integer col = colIndex.get( name );
+		if( ( row == null ) || ( col == null ) || ( row < 0 ) )
+		{
+			return null;
+		}
+		return columns.get( col ).get( row );
+	}
+
+	/**
+	 * Rename the ID column and row IDs.  IDs not found in idMap are unchanged.
+	 * @param newIdName
+	 * @param idMap - new IDs keyed by the current ID
+	 */
+	public void renameIds( final String newIdName, final Map<String, String> idMap )
+	{
+		idName = newIdName;
+		rowIndex.clear();
+		rowIndex.put( idName, -1 );
+		for( int i = 0; i < ids.size(); i++ )
+		{
+			final String newId = idMap.get( ids.get( i ) );
+			if( newId != null )
+			{
+				ids.set( i, newId );
+			}
+			rowIndex.put( ids.get( i ), i );
+		}
+	}
+
+	/**
+	 * Get the number of data rows (excludes the header).
+	 * @return
+	 */
+	public int size()
+	{
+		return ids.size();
+	}
+
+	/**
+	 * Column storage with one value per row.
+	 */
+	private abstract class Column
+	{
+		abstract String get( int row );
+
+		abstract Set<String> getDistinctValues( int numRows );
+
+		abstract void grow( int size );
+
+		abstract void set( int row, String val );
+	}
+
+	/**
+	 * Each row stores an int code into the dictionary of distinct values.
+	 */
+	private class DictionaryColumn extends Column
+	{
+		private int[] codes = new int[ capacity ];
+		private final Map<String, Integer> codeMap = new HashMap<>();
+		private final List<String> dictionary = new ArrayList<>();
+
+		@Override
+		String get( final int row )
+		{
+			return dictionary.get( codes[ row ] );
+		}
+
+		@Override
+		Set<String> getDistinctValues( final int numRows )
+		{
+			final Set<String> vals = new HashSet<>();
+			final boolean[] used = new boolean[ dictionary.size() ];
+			for( int i = 0; i < numRows; i++ )
+			{
+				if( !used[ codes[ i ] ] )
+				{
+					used[ codes[ i ] ] = true;
+					vals.add( dictionary.get( codes[ i ] ) );
+				}
+			}
+			return vals;
+		}
+
+		@Override
+		void grow( final int size )
+		{
+			codes = Arrays.copyOf( codes, size );
+		}
+
+		@Override
+		void set( final int row, final String val )
+		{
+			Integer code = codeMap.get( val );
+			if( code == null )
+			{
+				code = dictionary.size();
+				dictionary.add( val );
+				codeMap.put( val, code );
+			}
+			codes[ row ] = code;
+		}
+	}
+
+	/**
+	 * Each row stores a double.  Values that would not print back exactly as they were read
+	 * (such as "1.50" or the null value) are also saved as text so output never changes.
+	 */
+	private class NumericColumn extends Column
+	{
+		private final Map<Integer, String> text = new HashMap<>();
+		private double[] values = new double[ capacity ];
+
+		@Override
+		String get( final int row )
+		{
+			final String val = text.get( row );
+			return ( val == null ) ? format( values[ row ] ): val;
+		}
+
+		@Override
+		Set<String> getDistinctValues( final int numRows )
+		{
+			final Set<String> vals = new HashSet<>();
+			for( int i = 0; i < numRows; i++ )
+			{
+				vals.add( get( i ) );
+			}
+			return vals;
+		}
+
+		@Override
+		void grow( final int size )
+		{
+			values = Arrays.copyOf( values, size );
+		}
+
+		@Override
+		void set( final int row, final String val )
+		{
+			values[ row ] = parse( val );
+			if( format( values[ row ] ).equals( val ) )
+			{
+				text.remove( row );
+			}
+			else
+			{
+				text.put( row, val );
+			}
+		}
+
+		private String format( final double val )
+		{
+			if( ( val == Math.rint( val ) ) && ( Math.abs( val ) < 1e15 ) )
+			{
+				return Long.toString( (long) val );
+			}
+			return Double.toString( val );
+		}
+
+		private double parse( final String val )
+		{
+			if( !NumberUtils.isNumber( val ) )
+			{
+				return Double.NaN;
+			}
+
+			try
+			{
+				return Double.parseDouble( val );
+			}
+			catch( final NumberFormatException ex )
+			{
+				return Double.NaN;
+			}
+		}
+	}
+}
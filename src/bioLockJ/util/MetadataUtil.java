@@ -20,8 +20,10 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
-import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -43,11 +45,16 @@ import bioLockJ.Module;
  */
 public class MetadataUtil extends BioLockJ
 {
+	private static final String TEMP_SUFFIX = ".tmp";
 	private final Map<String, Set<String>> attributeMap = new HashMap<>();
 	private File descriptorFile = null;
 	private Map<String, List<String>> descriptorMap = null;
 	private File metadataFile = null;
-	private Map<String, List<String>> metadataMap = null;
+	private MetadataTable metadataTable = null;
+	private final List<String> pendingCols = new ArrayList<>();
+	private File pendingDir = null;
+	private Map<String, String> pendingIdMap = null;
+	private boolean pendingNullFill = false;
 	private String metaId = "id";
 	private final Set<String> rScriptFields = new TreeSet<>();
 
@@ -81,97 +88,12 @@ public class MetadataUtil extends BioLockJ
 		}
 		
 		setRscriptFields();
-		
-		validateMetadataValues();
-
-		copyFile( descriptorFile, requireString( ROOT_DIR ) );
-		
-		metadataFile = new File( requireString( ROOT_DIR ) + metadataFile.getName() );
-		descriptorFile = new File( requireString( ROOT_DIR ) + descriptorFile.getName() );
-
-		loadMetadata( metadataFile, descriptorFile );
+		loadMetadata( metadataFile, descriptorFile, true );
+		pendingDir = new File( requireString( ROOT_DIR ) );
+		pendingNullFill = true;
 		verifyReportFields();
 	}
 	
-	private void validateMetadataValues() throws Exception
-	{
-		final String newMeta = requireString( ROOT_DIR ) + metadataFile.getName();
-		final BufferedReader reader = new BufferedReader( new FileReader( metadataFile ) );
-		final BufferedWriter writer = new BufferedWriter( new FileWriter( newMeta ) );
-		try
-		{
-			boolean isHeaderRow = true;
-			int row = 1;
-			List<String> colNames = new ArrayList<String>();
-			for( String line = reader.readLine(); line != null; line = reader.readLine() )
-			{
-				if( isHeaderRow )
-				{
-					isHeaderRow = false;
-					writer.write( line + "\n" );
-					int i = 1;
-					final String[] cells = line.split( "\t", -1 );
-					for( String cell: cells )
-					{
-						if( ( cell == null) || cell.trim().isEmpty() )
-						{
-							throw new Exception( "Metadata file column names must all be non-null. Column #" + i + " is empty!" );
-						}
-						else if( colNames.contains( cell.trim() ) )
-						{
-							int j = 1;
-							String dup = null;
-							for( String name: colNames )
-							{
-								if( name.equals( cell.trim() ) )
-								{
-									dup = name;
-									break;
-								}
-								j++;
-							}
-							
-							throw new Exception( "Metadata file column names must be unique.  Column #" + i 
-									+ " is a duplicate of Column #" + j + " - duplicate name = [" + dup + "]" );
-						}
-						colNames.add( cell.trim() );
-						i++;
-					}
-					
-					continue;
-				}
-
-				final String[] cells = line.split( "\t", -1 );
-				int i = 1;
-				StringBuffer sb = new StringBuffer();
-				for( String cell: cells )
-				{
-					if( ( cell == null) || cell.trim().isEmpty() )
-					{
-						cell = nullChar;
-						debug( "====> Set Row#[" + row  + "] - Column#[" + i + "] = " + cell );
-					}
-					
-					if( i > 1 )
-					{
-						sb.append( TAB );
-					}
-					sb.append( cell );
-					i++;
-				}
-				
-				writer.write( sb.toString() + "\n" );
-				row++;
-			}	
-		}
-		finally
-		{
-			reader.close();
-			writer.flush();
-			writer.close();
-		}
-	}
-
 	/**
 	 * Log config file settings in welcome message - just a hack, should probably move to ApplicationManager.
 	 * @throws Exception
@@ -212,8 +134,8 @@ public class MetadataUtil extends BioLockJ
 
 	/**
 	 * When a new column is added to metadata, this method will add the column, with all row values.
-	 * Here we also update the descriptor and set the new values in the ConfigUtil.  The updated
-	 * files are output to the "outputDir" to be picked up by the next executor.
+	 * Here we also update the descriptor.  The column is only added in memory, the updated files
+	 * are output to the "outputDir" the next time the metadata or descriptor file is requested.
 	 * @param module
 	 * @param name
 	 * @param map
@@ -223,59 +145,17 @@ public class MetadataUtil extends BioLockJ
 	public void addColumnToMetadata( final Module module, final String name, final Map<String, Integer> map,
 			final File fileDir ) throws Exception
 	{
-		final String metaName = metadataFile.getName();
-		final String descName = descriptorFile.getName();
-
-		final File newMeta = new File( fileDir.getAbsolutePath() + File.separator + metaName );
-		final File newDesc = new File( fileDir.getAbsolutePath() + File.separator + descName );
-		final BufferedReader metaReader = new BufferedReader( new FileReader( metadataFile ) );
-		final BufferedWriter metaWriter = new BufferedWriter( new FileWriter( newMeta ) );
-		final BufferedReader descReader = new BufferedReader( new FileReader( descriptorFile ) );
-		final BufferedWriter descWriter = new BufferedWriter( new FileWriter( newDesc ) );
-
 		log.info( "Adding new attribute [" + name + "] to metadata" );
 		printDescriptor();
-		boolean isHeaderRow = true;
-		try
-		{
-			for( String line = descReader.readLine(); line != null; line = descReader.readLine() )
-			{
-				log.info( "Copy existing descriptor line = " + line );
-				descWriter.write( line + "\n" );
-			}
-
-			descWriter.write( name + DELIM + CONTINUOUS + DELIM + QIIME_COMMENT + "\n" );
-
-			for( String line = metaReader.readLine(); line != null; line = metaReader.readLine() )
-			{
-				final StringTokenizer st = new StringTokenizer( line, DELIM );
-				if( isHeaderRow )
-				{
-					isHeaderRow = false;
-					line += DELIM + name;
-				}
-				else
-				{
-					line += DELIM + map.get( st.nextToken() );
-				}
-
-				metaWriter.write( line + "\n" );
-			}
-		}
-		catch( final Exception ex )
+		if( pendingNullFill )
 		{
-			log.error( "Error occurred updating metadata with new attribute [" + name + "]", ex );
-		}
-		finally
-		{
-			metaReader.close();
-			descReader.close();
-			metaWriter.flush();
-			descWriter.flush();
-			metaWriter.close();
-			descWriter.close();
-			loadMetadata( newMeta, newDesc );
+			writePendingChanges();
 		}
+		metadataTable.addColumn( name, map, true, nullChar );
+		descriptorMap.put( name, new ArrayList<>( Arrays.asList( CONTINUOUS, QIIME_COMMENT ) ) );
+		pendingCols.add( name );
+		pendingDir = fileDir;
+		populateAttributeMap();
 	}
 
 	/**
@@ -284,7 +164,7 @@ public class MetadataUtil extends BioLockJ
 	 */
 	public List<String> getAttributeNames()
 	{
-		return metadataMap.get( metaId );
+		return metadataTable.getColNames();
 	}
 
 	/**
@@ -297,7 +177,7 @@ public class MetadataUtil extends BioLockJ
 	{
 		try
 		{
-			return metadataMap.get( id );
+			return metadataTable.getRow( id );
 		}
 		catch( final Exception ex )
 		{
@@ -324,23 +204,34 @@ public class MetadataUtil extends BioLockJ
 		}
 	}
 
-	public File getDescriptor()
+	public File getDescriptor() throws Exception
 	{
+		writePendingChanges();
 		return descriptorFile;
 	}
 
-	public File getMetadata()
+	public File getMetadata() throws Exception
 	{
+		writePendingChanges();
 		return metadataFile;
 	}
 
+	/**
+	 * Get the path of the last metadata file written, without writing pending changes (for logging).
+	 * @return
+	 */
+	public String getMetadataPath()
+	{
+		return metadataFile.getAbsolutePath();
+	}
+
 	/**
 	 * Get the first column from the metadata file.
 	 * @return
 	 */
 	public Set<String> getMetaFileFirstColValues()
 	{
-		return metadataMap.keySet();
+		return metadataTable.getIds();
 	}
 
 	public String getMetaId()
@@ -357,19 +248,12 @@ public class MetadataUtil extends BioLockJ
 	 */
 	public String getValue( final String id, final String attribute ) throws Exception
 	{
-		final String val = "";
-		try
-		{
-			final List<String> colNames = metadataMap.get( metaId );
-			final int index = colNames.indexOf( attribute );
-
-			final List<String> values = metadataMap.get( id );
-			return values.get( index );
-		}
-		catch( final Exception ex )
+		final String val = metadataTable.getValue( id, attribute );
+		if( val == null )
 		{
 			throw new Exception( "Invalid attribute: " + attribute );
 		}
+		return val;
 	}
 
 	/**
@@ -398,10 +282,24 @@ public class MetadataUtil extends BioLockJ
 	 */
 	public void loadMetadata( final File metadata, final File descriptor ) throws Exception
 	{
+		loadMetadata( metadata, descriptor, false );
+	}
+
+	/**
+	 * Load the metadata & descriptor in a single pass over each file.
+	 * @param metadata
+	 * @param descriptor
+	 * @param validate - if TRUE, validate column names & rows while loading
+	 * @throws Exception
+	 */
+	private void loadMetadata( final File metadata, final File descriptor, final boolean validate )
+			throws Exception
+	{
+		writePendingChanges();
 		info( "Loading Metadata: " + metadata.getAbsolutePath() );
 		info( "Loading Descriptor: " + descriptor.getAbsolutePath() );
-		processMetadata( processFile( descriptor ), MAP_TYPE_DESCRIPTOR );
-		processMetadata( processFile( metadata ), MAP_TYPE_METADATA );
+		loadDescriptorFile( descriptor );
+		loadMetadataFile( metadata, validate );
 		populateAttributeMap();
 		metadataFile = metadata;
 		descriptorFile = descriptor;
@@ -424,38 +322,13 @@ public class MetadataUtil extends BioLockJ
 	 */
 	public void populateAttributeMap() throws Exception
 	{
-		final Map<String, Integer> map = new HashMap<>();
-		int index = 0;
-		for( final String attribute: metadataMap.get( getMetaId() ) )
+		attributeMap.clear();
+		for( final String attribute: getAttributeNames() )
 		{
-			if( rScriptFields.contains( attribute ) )
+			if( rScriptFields.contains( attribute ) && !attributeMap.containsKey( attribute ) )
 			{
-				info( "Initialize Attribute Map | attribute(" + attribute + ") = index(" + index + ")" );
-				map.put( attribute, index );
-				attributeMap.put( attribute, new HashSet<String>() );
-			}
-			index++;
-		}
-
-		for( final String attribute: map.keySet() )
-		{
-			final int target = map.get( attribute );
-			info( "populate attribute map for: " + attribute + " [target index = " + target + "]" );
-			for( final String key: metadataMap.keySet() )
-			{
-				if( key.equals( getMetaId() ) )
-				{
-					continue;
-				}
-				int i = 0;
-				final List<String> row = metadataMap.get( key );
-				for( final String value: row )
-				{
-					if( ( i++ == target ) && !value.equals( nullChar ) )
-					{
-						attributeMap.get( attribute ).add( value );
-					}
-				}
+				info( "populate attribute map for: " + attribute );
+				attributeMap.put( attribute, metadataTable.getDistinctValues( attribute, nullChar ) );
 			}
 		}
 
@@ -495,6 +368,47 @@ public class MetadataUtil extends BioLockJ
 		}
 	}
 
+	/**
+	 * Rename the ID column and all row IDs in memory.  The updated metadata file is output to the
+	 * fileDir the next time it is requested.
+	 * @param newMetaId - new ID column name
+	 * @param idMap - new IDs keyed by the current ID
+	 * @param fileDir
+	 * @throws Exception
+	 */
+	public void renameIds( final String newMetaId, final Map<String, String> idMap, final File fileDir )
+			throws Exception
+	{
+		for( final String id: getMetaFileFirstColValues() )
+		{
+			if( !id.equals( metaId ) && !idMap.containsKey( id ) )
+			{
+				throw new Exception( "Unable to rename metadata - no new ID found for: " + id );
+			}
+		}
+
+		if( pendingNullFill )
+		{
+			writePendingChanges();
+		}
+
+		if( pendingIdMap == null )
+		{
+			pendingIdMap = new HashMap<>( idMap );
+		}
+		else
+		{
+			for( final String key: pendingIdMap.keySet() )
+			{
+				pendingIdMap.put( key, idMap.get( pendingIdMap.get( key ) ) );
+			}
+		}
+
+		info( "Rename metadata IDs: " + metaId + " => " + newMetaId );
+		metadataTable.renameIds( setMetaId( newMetaId ), idMap );
+		pendingDir = fileDir;
+	}
+
 	/**
 	 * Clean values avoid commas, and replace spaces with underscores.
 	 * @param val
@@ -516,13 +430,15 @@ public class MetadataUtil extends BioLockJ
 		return val.trim().replace( " ", emptySpaceDelim );
 	}
 
-	public void setDescriptor( final File f )
+	public void setDescriptor( final File f ) throws Exception
 	{
+		writePendingChanges();
 		descriptorFile = f;
 	}
 
-	public void setMetadata( final File f )
+	public void setMetadata( final File f ) throws Exception
 	{
+		writePendingChanges();
 		metadataFile = f;
 	}
 
@@ -540,6 +456,7 @@ public class MetadataUtil extends BioLockJ
 	 */
 	public void updateDescriptor( final List<String> newFields, final File targetDir ) throws Exception
 	{
+		writePendingChanges();
 		info( "Updating descriptor: " + descriptorFile.getAbsolutePath() );
 		printDescriptor();
 		final String name = descriptorFile.getName();
@@ -573,6 +490,99 @@ public class MetadataUtil extends BioLockJ
 		descriptorFile = newDesc;
 	}
 
+	/**
+	 * Output the metadata & descriptor files with any columns added by addColumnToMetadata() since
+	 * the files were last written.  The first time the files are written to the ROOT_DIR, empty
+	 * cells are set to the metadata.nullValue.  Files are written to a temp file first since the
+	 * pendingDir may already contain the current files.
+	 * @throws Exception
+	 */
+	public void writePendingChanges() throws Exception
+	{
+		if( pendingCols.isEmpty() && !pendingNullFill && ( pendingIdMap == null ) )
+		{
+			return;
+		}
+
+		final File newMeta = new File( pendingDir.getAbsolutePath() + File.separator + metadataFile.getName() );
+		final File newDesc = new File( pendingDir.getAbsolutePath() + File.separator + descriptorFile.getName() );
+		final File tempMeta = new File( newMeta.getAbsolutePath() + TEMP_SUFFIX );
+		final File tempDesc = new File( newDesc.getAbsolutePath() + TEMP_SUFFIX );
+		info( "Writing new attributes " + pendingCols + " to metadata: " + newMeta.getAbsolutePath() );
+
+		final BufferedReader descReader = new BufferedReader( new FileReader( descriptorFile ) );
+		final BufferedWriter descWriter = new BufferedWriter( new FileWriter( tempDesc ) );
+		try
+		{
+			for( String line = descReader.readLine(); line != null; line = descReader.readLine() )
+			{
+				descWriter.write( line + "\n" );
+			}
+
+			for( final String name: pendingCols )
+			{
+				descWriter.write( name + DELIM + CONTINUOUS + DELIM + QIIME_COMMENT + "\n" );
+			}
+		}
+		finally
+		{
+			descReader.close();
+			descWriter.close();
+		}
+
+		final BufferedReader metaReader = new BufferedReader( new FileReader( metadataFile ) );
+		final BufferedWriter metaWriter = new BufferedWriter( new FileWriter( tempMeta ) );
+		try
+		{
+			boolean isHeaderRow = true;
+			for( String line = metaReader.readLine(); line != null; line = metaReader.readLine() )
+			{
+				final StringTokenizer st = new StringTokenizer( line, DELIM );
+				if( !st.hasMoreTokens() )
+				{
+					metaWriter.write( line + "\n" );
+					continue;
+				}
+
+				final String token = st.nextToken();
+				final String rowId = rScriptFormat( token ).trim();
+				final String id = ( pendingIdMap == null ) ? rowId: pendingIdMap.getOrDefault( rowId, rowId );
+				if( pendingNullFill && !isHeaderRow )
+				{
+					line = fillNulls( line );
+				}
+				if( pendingIdMap != null )
+				{
+					line = ( isHeaderRow ? metaId: id ) + line.substring( line.indexOf( token ) + token.length() );
+				}
+
+				final StringBuffer sb = new StringBuffer( line );
+				for( final String name: pendingCols )
+				{
+					final String val = isHeaderRow ? name: metadataTable.getValue( id, name );
+					sb.append( DELIM ).append( ( val == null ) ? nullChar: val );
+				}
+				isHeaderRow = false;
+				metaWriter.write( sb.toString() + "\n" );
+			}
+		}
+		finally
+		{
+			metaReader.close();
+			metaWriter.close();
+		}
+
+		Files.move( tempDesc.toPath(), newDesc.toPath(), StandardCopyOption.REPLACE_EXISTING );
+		Files.move( tempMeta.toPath(), newMeta.toPath(), StandardCopyOption.REPLACE_EXISTING );
+		metadataFile = newMeta;
+		descriptorFile = newDesc;
+		ignoreInputFiles.add( metadataFile.getName() );
+		ignoreInputFiles.add( descriptorFile.getName() );
+		pendingCols.clear();
+		pendingNullFill = false;
+		pendingIdMap = null;
+	}
+
 	/**
 	 * Set collection with values formatted for R Script
 	 * @param list
@@ -627,105 +637,168 @@ public class MetadataUtil extends BioLockJ
 	
 
 	/**
-	 * Process a file by getting clean values for each cell in the spreadsheet.
-	 * @param file
+	 * Replace empty cells with the metadata.nullValue.
+	 * @param line
 	 * @return
 	 */
-	private List<List<String>> processFile( final File file )
+	private String fillNulls( final String line )
 	{
-		final List<List<String>> data = new ArrayList<>();
-		FileReader fileReader = null;
-		CSVParser csvFileParser = null;
-		try
+		final StringBuffer sb = new StringBuffer();
+		int i = 0;
+		for( final String cell: line.split( DELIM, -1 ) )
+		{
+			if( i++ > 0 )
+			{
+				sb.append( DELIM );
+			}
+			sb.append( cell.trim().isEmpty() ? nullChar: cell );
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Get clean values for each cell in a spreadsheet row.
+	 * @param record
+	 * @return
+	 */
+	private List<String> formatRow( final CSVRecord record )
+	{
+		final List<String> row = new ArrayList<>( record.size() );
+		for( final String cell: record )
 		{
-			fileReader = new FileReader( file );
-			csvFileParser = new CSVParser( fileReader, CSVFormat.DEFAULT.withDelimiter( TAB ) );
-			final Iterator<CSVRecord> csvRecords = csvFileParser.getRecords().iterator();
+			row.add( rScriptFormat( cell ).trim() );
+		}
+		return row;
+	}
 
-			while( csvRecords.hasNext() )
+	/**
+	 * Stream the descriptor file into the descriptorMap, keyed by attribute name.
+	 * @param file
+	 * @throws Exception
+	 */
+	private void loadDescriptorFile( final File file ) throws Exception
+	{
+		final Map<String, List<String>> map = new HashMap<>();
+		final CSVParser parser = new CSVParser( new FileReader( file ), CSVFormat.DEFAULT.withDelimiter( TAB ) );
+		try
+		{
+			int rowNum = 0;
+			for( final CSVRecord record: parser )
 			{
-				final ArrayList<String> record = new ArrayList<>();
-				final CSVRecord csvRow = csvRecords.next();
-				final Iterator<String> it = csvRow.iterator();
-				while( it.hasNext() )
+				final List<String> row = formatRow( record );
+				final String id = row.remove( 0 );
+				if( rowNum > 0 ) // ignore header
 				{
-					record.add( rScriptFormat( it.next() ) );
+					info( "Descriptor Row[" + rowNum + "]: Attribute Type(" + id + ") = " + row.get( 0 ) );
 				}
-
-				data.add( record );
+				map.put( id, row );
+				rowNum++;
 			}
+			info( "Loaded DESCRIPTOR for " + ( rowNum - 1 ) + " attributes" );
 		}
 		catch( final Exception ex )
 		{
-			error( "Error occurred processing file: " + file.getAbsolutePath(), ex );
-			return null;
+			throw new Exception( "Error occurred processing file: " + file.getAbsolutePath() + " : " + ex.getMessage() );
 		}
 		finally
 		{
-			try
-			{
-				fileReader.close();
-				csvFileParser.close();
-			}
-			catch( final IOException ex )
-			{
-				error( "Error occurred clsoing file: " + file.getAbsolutePath(), ex );
-			}
+			parser.close();
 		}
 
-		return data;
+		descriptorMap = map;
 	}
 
 	/**
-	 * Process metadata & output some values to log file for verification.
-	 * @param data
-	 * @param mapType
+	 * Stream the metadata file into a column based MetadataTable.  CONTINUOUS attributes are
+	 * stored as numbers, all other attributes are dictionary encoded.  Empty cells are set to the
+	 * metadata.nullValue.  The descriptor must be loaded first.  If validate = TRUE, all invalid
+	 * column names and rows are reported at once.
+	 * @param file
+	 * @param validate
+	 * @throws Exception
 	 */
-	private void processMetadata( final List<List<String>> data, final String mapType )
+	private void loadMetadataFile( final File file, final boolean validate ) throws Exception
 	{
-		final boolean isMeta = mapType.equals( MAP_TYPE_METADATA );
-		final Map<String, List<String>> map = new HashMap<>();
-		final int digits = new Integer( data.size() ).toString().length();
+		MetadataTable table = null;
+		final List<String> errors = new ArrayList<>();
+		final Map<String, Integer> rowNums = new HashMap<>();
 		int rowNum = 0;
-		final Iterator<List<String>> rows = data.iterator();
-		while( rows.hasNext() )
+		final CSVParser parser = new CSVParser( new FileReader( file ), CSVFormat.DEFAULT.withDelimiter( TAB ) );
+		try
 		{
-			final List<String> row = trim( rows.next() );
-			final String id = row.get( 0 ).trim();
-			row.remove( 0 );
-
-			if( isMeta && ( rowNum == 0 ) )
-			{
-				info( "Loading METADATA [ID = " + setMetaId( id ) + "] with " + row.size() + " attribute columns" );
-			}
-			else if( !isMeta && ( rowNum == 0 ) )
+			for( final CSVRecord record: parser )
 			{
-				info( "Loading DESCRIPTOR for " + ( data.size() - 1 ) + " attributes" );
-			}
+				final List<String> row = formatRow( record );
+				final String id = row.remove( 0 );
+				if( table == null )
+				{
+					if( validate )
+					{
+						validateColumnNames( id, row, errors );
+					}
 
-			if( isMeta && ( rowNum < 2 ) )
-			{
-				info( "Example Metadata Row[" + formatInt( rowNum, digits ) + "]: Key(" + id + "): " + row );
+					final Set<String> numericCols = new HashSet<>();
+					for( final String att: row )
+					{
+						final List<String> desc = getAttributeDescriptor( att );
+						if( ( desc != null ) && ( desc.size() > ATT_TYPE_INDEX )
+								&& desc.get( ATT_TYPE_INDEX ).toUpperCase().equals( CONTINUOUS ) )
+						{
+							numericCols.add( att );
+						}
+					}
+					table = new MetadataTable( setMetaId( id ), row, numericCols );
+					info( "Loading METADATA [ID = " + metaId + "] with " + row.size() + " attribute columns" );
+					info( "Example Metadata Row[0]: Key(" + id + "): " + row );
+				}
+				else if( id.equals( metaId ) )
+				{
+					warn( "Metadata row ID [" + id + "] is the same as the ID column name - row ignored" );
+				}
+				else
+				{
+					if( validate )
+					{
+						validateRow( id, row, ++rowNum, table.getColNames().size(), rowNums, errors );
+					}
 
-			}
-			else if( !isMeta && ( rowNum > 0 ) ) // ignore header
-			{
-				info( "Descriptor Row[" + formatInt( rowNum, digits ) + "]: Attribute Type(" + id + ") = "
-						+ row.get( 0 ) );
-			}
+					for( int i = 0; i < row.size(); i++ )
+					{
+						if( row.get( i ).isEmpty() )
+						{
+							row.set( i, nullChar );
+						}
+					}
 
-			map.put( id, row );
-			rowNum++;
+					if( table.size() == 0 )
+					{
+						info( "Example Metadata Row[1]: Key(" + id + "): " + row );
+					}
+					table.addRow( id, row, nullChar );
+				}
+			}
+		}
+		catch( final Exception ex )
+		{
+			throw new Exception( "Error occurred processing file: " + file.getAbsolutePath() + " : " + ex.getMessage() );
+		}
+		finally
+		{
+			parser.close();
 		}
 
-		if( isMeta )
+		if( table == null )
 		{
-			metadataMap = map;
+			throw new Exception( "Metadata file is empty: " + file.getAbsolutePath() );
 		}
-		else
+		else if( !errors.isEmpty() )
 		{
-			descriptorMap = map;
+			throw new Exception( "Metadata file " + file.getAbsolutePath() + " contains " + errors.size()
+					+ " error(s):\n" + String.join( "\n", errors ) );
 		}
+
+		info( "Loaded " + table.size() + " metadata rows" );
+		metadataTable = table;
 	}
 
 	/**
@@ -743,20 +816,71 @@ public class MetadataUtil extends BioLockJ
 	}
 
 	/**
-	 * Trim all values in row.
+	 * Column names must be non-null and unique.
+	 * @param id - ID column name
+	 * @param names - attribute column names
+	 * @param errors
+	 */
+	private void validateColumnNames( final String id, final List<String> names, final List<String> errors )
+	{
+		final Map<String, Integer> colNums = new HashMap<>();
+		final List<String> cols = new ArrayList<>( names );
+		cols.add( 0, id );
+		int i = 1;
+		for( final String name: cols )
+		{
+			if( name.isEmpty() )
+			{
+				errors.add( "Metadata file column names must all be non-null. Column #" + i + " is empty!" );
+			}
+			else if( colNums.containsKey( name ) )
+			{
+				errors.add( "Metadata file column names must be unique.  Column #" + i
+						+ " is a duplicate of Column #" + colNums.get( name ) + " - duplicate name = [" + name + "]" );
+			}
+			else
+			{
+				colNums.put( name, i );
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * Rows must have a unique, non-null ID and cannot have more values than there are columns.
+	 * Rows with fewer values are padded with the metadata.nullValue.
+	 * @param id
 	 * @param row
-	 * @return
+	 * @param rowNum
+	 * @param numCols
+	 * @param rowNums - row number of each ID found so far
+	 * @param errors
 	 */
-	private List<String> trim( final List<String> row )
+	private void validateRow( final String id, final List<String> row, final int rowNum, final int numCols,
+			final Map<String, Integer> rowNums, final List<String> errors )
 	{
-		final List<String> formattedRow = new ArrayList<>();
-		final Iterator<String> it = row.iterator();
-		while( it.hasNext() )
+		if( id.isEmpty() )
 		{
-			formattedRow.add( it.next().trim() );
+			errors.add( "Metadata Row #" + rowNum + " has an empty ID" );
+		}
+		else if( rowNums.containsKey( id ) )
+		{
+			errors.add( "Metadata Row #" + rowNum + " ID [" + id + "] is a duplicate of Row #" + rowNums.get( id ) );
+		}
+		else
+		{
+			rowNums.put( id, rowNum );
 		}
 
-		return formattedRow;
+		for( int i = numCols; i < row.size(); i++ )
+		{
+			if( !row.get( i ).isEmpty() )
+			{
+				errors.add( "Metadata Row #" + rowNum + " ID [" + id + "] has a value in Column #" + ( i + 2 )
+						+ " but the header only has " + ( numCols + 1 ) + " columns" );
+				break;
+			}
+		}
 	}
 
 	/**
@@ -769,11 +893,11 @@ public class MetadataUtil extends BioLockJ
 		{
 			if( getAttributeType( field ) == null )
 			{
-				throw new Exception( field + " is undefined in descriptor: " + getDescriptor().getAbsolutePath() );
+				throw new Exception( field + " is undefined in descriptor: " + descriptorFile.getAbsolutePath() );
 			}
 			if( !getAttributeNames().contains( field ) )
 			{
-				throw new Exception( field + " is not found in metadata: " + getMetadata().getAbsolutePath() );
+				throw new Exception( field + " is not found in metadata: " + metadataFile.getAbsolutePath() );
 			}
 		}
 	}
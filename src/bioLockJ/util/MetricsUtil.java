@@ -0,0 +1,436 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Aug 7, 2017
+ * @disclaimer 	This code is free software; you can redistribute it and/or
+ * 				modify it under the terms of the GNU General Public License
+ * 				as published by the Free Software Foundation; either version 2
+ * 				of the License, or (at your option) any later version,
+ * 				provided that any use properly credits the author.
+ * 				This program is distributed in the hope that it will be useful,
+ * 				but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 				MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * 				GNU General Public License for more details at http://www.gnu.org *
+ */
+package bioLockJ.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import bioLockJ.BioLockJ;
+
+/**
+ * MetricsUtil records performance metrics for each Module.  Each Module phase (checkDependencies,
+ * executeProjectFile, and the wait for its scripts) is timed with wall clock time, JVM CPU time,
+ * GC time, and peak heap.  Counters and histograms (reads processed, files & bytes read, etc.) are
+ * thread safe and are assigned to the Module currently running.  The metrics are output to
+ * <project>_metrics.json & <project>_metrics.tsv in the project dir.
+ */
+public class MetricsUtil extends BioLockJ
+{
+	public static final String BYTES_READ = "bytesRead";
+	public static final String BYTES_WRITTEN = "bytesWritten";
+	public static final String FILE_SIZE = "fileSizeBytes";
+	public static final String FILES_READ = "filesRead";
+	public static final String PHASE_CHECK_DEPENDENCIES = "checkDependencies";
+	public static final String PHASE_EXECUTE = "executeProjectFile";
+	public static final String PHASE_SCRIPT_WAIT = "scriptWait";
+	public static final String READS_PER_FILE = "readsPerFile";
+	public static final String READS_PROCESSED = "readsProcessed";
+	public static final String RECORDS_PROCESSED = "recordsProcessed";
+
+	private static final String APP_NAME = "BioLockJ";
+	private static final Map<String, Map<String, LongAdder>> counters = Collections
+			.synchronizedMap( new LinkedHashMap<>() );
+	private static volatile String currentModule = APP_NAME;
+	private static final Map<String, Map<String, Histogram>> histograms = Collections
+			.synchronizedMap( new LinkedHashMap<>() );
+	private static final long MB = 1024L * 1024L;
+	private static Phase openPhase = null;
+	private static final List<Phase> phases = new ArrayList<>();
+
+	/**
+	 * Add n to the named counter for the current Module.
+	 * @param name
+	 * @param n
+	 */
+	public static void count( final String name, final long n )
+	{
+		counters.computeIfAbsent( currentModule, k -> new ConcurrentHashMap<>() )
+				.computeIfAbsent( name, k -> new LongAdder() ).add( n );
+	}
+
+	/**
+	 * End the current phase and save its metrics.
+	 */
+	public static synchronized void endPhase()
+	{
+		if( openPhase != null )
+		{
+			openPhase.end();
+			phases.add( openPhase );
+			openPhase = null;
+		}
+	}
+
+	/**
+	 * Get a summary of the phase timings and counters for the log & summary email.
+	 * @return
+	 */
+	public static synchronized String getSummary()
+	{
+		final StringBuffer sb = new StringBuffer();
+		for( final Phase p: phases )
+		{
+			sb.append( String.format( "%-28s %-18s wall %9.1fs | cpu %9.1fs | gc %7.1fs | peak heap %6d MB\n",
+					p.module, p.phase, p.wallMs / 1000.0, p.cpuMs / 1000.0, p.gcMs / 1000.0,
+					p.peakHeapBytes / MB ) );
+		}
+
+		synchronized( counters )
+		{
+			for( final String module: counters.keySet() )
+			{
+				final StringBuffer line = new StringBuffer();
+				for( final Map.Entry<String, LongAdder> entry: new TreeMap<>( counters.get( module ) ).entrySet() )
+				{
+					line.append( ( line.length() == 0 ) ? "": ", " );
+					line.append( entry.getKey() + "=" + entry.getValue().sum() );
+				}
+				sb.append( String.format( "%-28s %s\n", module, line.toString() ) );
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Get the name of the Module currently running.
+	 * @return
+	 */
+	public static String getCurrentModule()
+	{
+		return currentModule;
+	}
+
+	/**
+	 * Add a value to the named histogram for the current Module.
+	 * @param name
+	 * @param value
+	 */
+	public static void record( final String name, final long value )
+	{
+		histograms.computeIfAbsent( currentModule, k -> new ConcurrentHashMap<>() )
+				.computeIfAbsent( name, k -> new Histogram() ).add( value );
+	}
+
+	/**
+	 * Start timing a phase.  Counters & histograms recorded until the next phase starts are
+	 * assigned to the given module.
+	 * @param module
+	 * @param phase
+	 */
+	public static synchronized void startPhase( final String module, final String phase )
+	{
+		endPhase();
+		currentModule = module;
+		openPhase = new Phase( module, phase );
+	}
+
+	/**
+	 * Output all metrics to <project>_metrics.json & <project>_metrics.tsv in the project dir.
+	 * @throws Exception
+	 */
+	public static synchronized void writeReport() throws Exception
+	{
+		endPhase();
+		final String prefix = requireString( ROOT_DIR ) + requireString( PROJECT_NAME ) + "_metrics";
+		writeJson( new File( prefix + ".json" ) );
+		writeTsv( new File( prefix + ".tsv" ) );
+		log.info( "Metrics saved to: " + prefix + ".json" );
+	}
+
+	private static long getGcCount()
+	{
+		long count = 0L;
+		for( final GarbageCollectorMXBean gc: ManagementFactory.getGarbageCollectorMXBeans() )
+		{
+			count += Math.max( 0L, gc.getCollectionCount() );
+		}
+		return count;
+	}
+
+	private static long getGcTime()
+	{
+		long time = 0L;
+		for( final GarbageCollectorMXBean gc: ManagementFactory.getGarbageCollectorMXBeans() )
+		{
+			time += Math.max( 0L, gc.getCollectionTime() );
+		}
+		return time;
+	}
+
+	/**
+	 * Sum of the peak usage of each heap memory pool since the last reset.
+	 * @return
+	 */
+	private static long getPeakHeap()
+	{
+		long peak = 0L;
+		for( final MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans() )
+		{
+			if( pool.getType() == MemoryType.HEAP )
+			{
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	/**
+	 * CPU time of all JVM threads if available, otherwise CPU time of the current thread.
+	 * @return nanoseconds
+	 */
+	private static long getProcessCpuTime()
+	{
+		final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if( os instanceof com.sun.management.OperatingSystemMXBean )
+		{
+			return ( (com.sun.management.OperatingSystemMXBean) os ).getProcessCpuTime();
+		}
+		return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+	}
+
+	private static String jsonString( final String val )
+	{
+		return "\"" + val.replace( "\\", "\\\\" ).replace( "\"", "\\\"" ) + "\"";
+	}
+
+	private static void resetPeakHeap()
+	{
+		for( final MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans() )
+		{
+			if( pool.getType() == MemoryType.HEAP )
+			{
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	private static void writeJson( final File file ) throws Exception
+	{
+		final BufferedWriter writer = new BufferedWriter( new FileWriter( file ) );
+		try
+		{
+			writer.write( "{\n  \"project\": " + jsonString( requireString( PROJECT_NAME ) ) + ",\n" );
+			writer.write( "  \"phases\": [" );
+			for( int i = 0; i < phases.size(); i++ )
+			{
+				final Phase p = phases.get( i );
+				writer.write( ( ( i == 0 ) ? "": "," ) + "\n    { \"module\": " + jsonString( p.module )
+						+ ", \"phase\": " + jsonString( p.phase ) + ", \"wallMs\": " + p.wallMs + ", \"cpuMs\": "
+						+ p.cpuMs + ", \"gcCount\": " + p.gcCount + ", \"gcMs\": " + p.gcMs
+						+ ", \"peakHeapBytes\": " + p.peakHeapBytes + " }" );
+			}
+			writer.write( "\n  ],\n  \"counters\": {" );
+			synchronized( counters )
+			{
+				int i = 0;
+				for( final String module: counters.keySet() )
+				{
+					writer.write( ( ( i++ == 0 ) ? "": "," ) + "\n    " + jsonString( module ) + ": {" );
+					int j = 0;
+					for( final Map.Entry<String, LongAdder> entry: new TreeMap<>( counters.get( module ) )
+							.entrySet() )
+					{
+						writer.write( ( ( j++ == 0 ) ? " ": ", " ) + jsonString( entry.getKey() ) + ": "
+								+ entry.getValue().sum() );
+					}
+					writer.write( " }" );
+				}
+			}
+			writer.write( "\n  },\n  \"histograms\": {" );
+			synchronized( histograms )
+			{
+				int i = 0;
+				for( final String module: histograms.keySet() )
+				{
+					writer.write( ( ( i++ == 0 ) ? "": "," ) + "\n    " + jsonString( module ) + ": {" );
+					int j = 0;
+					for( final Map.Entry<String, Histogram> entry: new TreeMap<>( histograms.get( module ) )
+							.entrySet() )
+					{
+						writer.write( ( ( j++ == 0 ) ? "": "," ) + "\n      " + jsonString( entry.getKey() ) + ": "
+								+ entry.getValue().toJson() );
+					}
+					writer.write( "\n    }" );
+				}
+			}
+			writer.write( "\n  }\n}\n" );
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	private static void writeTsv( final File file ) throws Exception
+	{
+		final BufferedWriter writer = new BufferedWriter( new FileWriter( file ) );
+		try
+		{
+			writer.write( "module" + DELIM + "phase" + DELIM + "metric" + DELIM + "value\n" );
+			for( final Phase p: phases )
+			{
+				final String key = p.module + DELIM + p.phase + DELIM;
+				writer.write( key + "wallMs" + DELIM + p.wallMs + "\n" );
+				writer.write( key + "cpuMs" + DELIM + p.cpuMs + "\n" );
+				writer.write( key + "gcCount" + DELIM + p.gcCount + "\n" );
+				writer.write( key + "gcMs" + DELIM + p.gcMs + "\n" );
+				writer.write( key + "peakHeapBytes" + DELIM + p.peakHeapBytes + "\n" );
+			}
+			synchronized( counters )
+			{
+				for( final String module: counters.keySet() )
+				{
+					for( final Map.Entry<String, LongAdder> entry: new TreeMap<>( counters.get( module ) )
+							.entrySet() )
+					{
+						writer.write( module + DELIM + "total" + DELIM + entry.getKey() + DELIM
+								+ entry.getValue().sum() + "\n" );
+					}
+				}
+			}
+			synchronized( histograms )
+			{
+				for( final String module: histograms.keySet() )
+				{
+					for( final Map.Entry<String, Histogram> entry: new TreeMap<>( histograms.get( module ) )
+							.entrySet() )
+					{
+						for( final Map.Entry<String, Long> stat: entry.getValue().getStats().entrySet() )
+						{
+							writer.write( module + DELIM + "total" + DELIM + entry.getKey() + "." + stat.getKey()
+									+ DELIM + stat.getValue() + "\n" );
+						}
+					}
+				}
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Histogram with power of 2 buckets, so percentiles are approximate (within 2x).
+	 */
+	private static class Histogram
+	{
+		private final long[] buckets = new long[ 65 ];
+		private long count = 0L;
+		private long max = Long.MIN_VALUE;
+		private long min = Long.MAX_VALUE;
+		private long sum = 0L;
+
+		synchronized void add( final long value )
+		{
+			buckets[ 64 - Long.numberOfLeadingZeros( Math.max( 0L, value ) ) ]++;
+			count++;
+			sum += value;
+			min = Math.min( min, value );
+			max = Math.max( max, value );
+		}
+
+		synchronized Map<String, Long> getStats()
+		{
+			final Map<String, Long> stats = new LinkedHashMap<>();
+			stats.put( "count", count );
+			stats.put( "min", ( count == 0 ) ? 0L: min );
+			stats.put( "max", ( count == 0 ) ? 0L: max );
+			stats.put( "mean", ( count == 0 ) ? 0L: sum / count );
+			stats.put( "p50", getPercentile( 0.50 ) );
+			stats.put( "p90", getPercentile( 0.90 ) );
+			stats.put( "p99", getPercentile( 0.99 ) );
+			return stats;
+		}
+
+		String toJson()
+		{
+			final StringBuffer sb = new StringBuffer( "{" );
+			for( final Map.Entry<String, Long> stat: getStats().entrySet() )
+			{
+				sb.append( ( ( sb.length() == 1 ) ? " ": ", " ) + jsonString( stat.getKey() ) + ": " + stat.getValue() );
+			}
+			return sb.append( " }" ).toString();
+		}
+
+		/**
+		 * Return the upper bound of the bucket containing the percentile, capped at max.
+		 * @param pct
+		 * @return
+		 */
+		private long getPercentile( final double pct )
+		{
+			long seen = 0L;
+			for( int i = 0; i < buckets.length; i++ )
+			{
+				seen += buckets[ i ];
+				if( ( count > 0 ) && ( seen >= Math.ceil( pct * count ) ) )
+				{
+					return ( i == 0 ) ? 0L: Math.min( max, ( i == 64 ) ? Long.MAX_VALUE: ( 1L << i ) - 1 );
+				}
+			}
+			return 0L;
+		}
+	}
+
+	/**
+	 * Timing & memory metrics for one Module phase.
+	 */
+	private static class Phase
+	{
+		private long cpuMs;
+		private final long cpuStart = getProcessCpuTime();
+		private long gcCount;
+		private final long gcCountStart = getGcCount();
+		private long gcMs;
+		private final long gcStart = getGcTime();
+		private final String module;
+		private long peakHeapBytes;
+		private final String phase;
+		private long wallMs;
+		private final long wallStart = System.currentTimeMillis();
+
+		Phase( final String module, final String phase )
+		{
+			this.module = module;
+			this.phase = phase;
+			resetPeakHeap();
+		}
+
+		void end()
+		{
+			wallMs = System.currentTimeMillis() - wallStart;
+			cpuMs = ( getProcessCpuTime() - cpuStart ) / 1000000L;
+			gcCount = getGcCount() - gcCountStart;
+			gcMs = getGcTime() - gcStart;
+			peakHeapBytes = getPeakHeap();
+		}
+	}
+}
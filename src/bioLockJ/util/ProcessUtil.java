@@ -16,43 +16,335 @@
 package bioLockJ.util;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import bioLockJ.BioLockJ;
 
 /**
  * ProcessUtil enables the Java program to execute scripts on thos host OS.
+ * Processes are started with ProcessBuilder and run on a background thread.  Both stdout and
+ * stderr are drained asynchronously into the log so a chatty process can never block on a full
+ * pipe.  Callers can wait on the returned Future, or use the blocking submit() methods, and may
+ * set a timeout after which the process is killed.  Only the first OUTPUT_LIMIT lines of each
+ * stream are logged at INFO level, the rest are logged at DEBUG level.
+ *
+ * If setsid is on the PATH, each command runs in its own process group so a timeout kills the
+ * whole group, including any scripts the command started.  A non-zero exit code throws an
+ * Exception unless the caller passes checkExitCode=false.
  */
 public class ProcessUtil extends BioLockJ
 {
+	private static final ExecutorService executor = Executors.newCachedThreadPool( r -> {
+		final Thread t = new Thread( r, "ProcessUtil" );
+		t.setDaemon( true );
+		return t;
+	} );
 	private static Logger log = LoggerFactory.getLogger( ProcessUtil.class );
+	private static final int OUTPUT_LIMIT = 100;
+	private static final String SETSID = getSetsid();
 
-	private ProcessUtil( final String[] args ) throws Exception
+	/**
+	 * Execute the command, wait for it to complete, and return the lines it printed to stdout.
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	public static List<String> getOutput( final String[] args ) throws Exception
 	{
-		final StringBuffer sb = new StringBuffer();
-		for( final String cmdArg: args )
+		return getOutput( args, 0L );
+	}
+
+	/**
+	 * Execute the command, wait up to timeoutSeconds for it to complete, and return the lines it
+	 * printed to stdout.
+	 * @param args
+	 * @param timeoutSeconds - kill the process after this many seconds (0 = no timeout)
+	 * @return
+	 * @throws Exception
+	 */
+	public static List<String> getOutput( final String[] args, final long timeoutSeconds ) throws Exception
+	{
+		return waitFor( getOutputAsync( args, timeoutSeconds ) );
+	}
+
+	/**
+	 * Start the command on a background thread.  The Future returns the lines printed to stdout.
+	 * @param args
+	 * @param timeoutSeconds - kill the process after this many seconds (0 = no timeout)
+	 * @return
+	 */
+	public static Future<List<String>> getOutputAsync( final String[] args, final long timeoutSeconds )
+	{
+		return executor.submit( () -> run( args, timeoutSeconds, true, true ) );
+	}
+
+	/**
+	 * Execute the command and wait for it to complete.
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void submit( final String[] args ) throws Exception
+	{
+		submit( args, 0L );
+	}
+
+	/**
+	 * Execute the command and wait up to timeoutSeconds for it to complete.
+	 * @param args
+	 * @param timeoutSeconds - kill the process after this many seconds (0 = no timeout)
+	 * @throws Exception
+	 */
+	public static void submit( final String[] args, final long timeoutSeconds ) throws Exception
+	{
+		submit( args, timeoutSeconds, true );
+	}
+
+	/**
+	 * Execute the command and wait up to timeoutSeconds for it to complete.
+	 * @param args
+	 * @param timeoutSeconds - kill the process after this many seconds (0 = no timeout)
+	 * @param checkExitCode - if false, a non-zero exit code is only logged as a warning
+	 * @throws Exception
+	 */
+	public static void submit( final String[] args, final long timeoutSeconds, final boolean checkExitCode )
+			throws Exception
+	{
+		waitFor( executor.submit( () -> run( args, timeoutSeconds, false, checkExitCode ) ) );
+	}
+
+	/**
+	 * Start the command on a background thread.  The Future completes when the process exits.
+	 * @param args
+	 * @param timeoutSeconds - kill the process after this many seconds (0 = no timeout)
+	 * @return
+	 */
+	public static Future<List<String>> submitAsync( final String[] args, final long timeoutSeconds )
+	{
+		return executor.submit( () -> run( args, timeoutSeconds, false, true ) );
+	}
+
+	/**
+	 * Wait for the process to complete, rethrowing any Exception thrown while it ran.
+	 * @param future
+	 * @return stdout lines (if collected)
+	 * @throws Exception
+	 */
+	public static List<String> waitFor( final Future<List<String>> future ) throws Exception
+	{
+		try
 		{
-			sb.append( cmdArg + " " );
+			return future.get();
 		}
+		catch( final ExecutionException ex )
+		{
+			if( ex.getCause() instanceof Exception )
+			{
+				throw (Exception) ex.getCause();
+			}
+			throw ex;
+		}
+	}
 
-		log.info( "[ProcessUtil] EXECUTE: " + sb.toString() );
+	/**
+	 * Wait for all of the processes to complete.
+	 * @param futures
+	 * @throws Exception
+	 */
+	public static void waitForAll( final List<Future<List<String>>> futures ) throws Exception
+	{
+		for( final Future<List<String>> future: futures )
+		{
+			waitFor( future );
+		}
+	}
+
+	/**
+	 * Read the stream line by line into the log, saving the lines if output is not null.
+	 * Lines after the first OUTPUT_LIMIT are logged at DEBUG level and counted in a summary line.
+	 * @param stream
+	 * @param prefix
+	 * @param output
+	 * @return
+	 */
+	private static Future<?> drain( final InputStream stream, final String prefix, final List<String> output )
+	{
+		return executor.submit( () -> {
+			try( final BufferedReader br = new BufferedReader( new InputStreamReader( stream ) ) )
+			{
+				String s;
+				int numLines = 0;
+				while( ( s = br.readLine() ) != null )
+				{
+					if( ++numLines <= OUTPUT_LIMIT )
+					{
+						log.info( prefix + s );
+					}
+					else if( log.isDebugEnabled() )
+					{
+						log.debug( prefix + s );
+					}
+
+					if( output != null )
+					{
+						output.add( s );
+					}
+				}
+
+				if( numLines > OUTPUT_LIMIT )
+				{
+					log.info( prefix + ( numLines - OUTPUT_LIMIT ) + " more lines logged at DEBUG level (total = "
+							+ numLines + ")" );
+				}
+			}
+			return null;
+		} );
+	}
 
-		final Runtime r = Runtime.getRuntime();
-		final Process p = r.exec( args );
-		final BufferedReader br = new BufferedReader( new InputStreamReader( p.getInputStream() ) );
-		String s;
-		while( ( s = br.readLine() ) != null )
+	/**
+	 * Get the pid of the process: Process.pid() on Java 9+, otherwise the pid field of the UNIX
+	 * Process implementation.
+	 * @param p
+	 * @return pid or -1 if not found
+	 */
+	private static long getPid( final Process p )
+	{
+		try
+		{
+			return (Long) Process.class.getMethod( "pid" ).invoke( p );
+		}
+		catch( final Exception ex )
 		{
-			log.info( "[ProcessUtil] " + s );
+			try
+			{
+				final Field pid = p.getClass().getDeclaredField( "pid" );
+				pid.setAccessible( true );
+				return pid.getInt( p );
+			}
+			catch( final Exception ex2 )
+			{
+				return -1L;
+			}
 		}
+	}
 
-		p.waitFor();
-		p.destroy();
+	/**
+	 * Find setsid on the PATH.
+	 * @return absolute path of setsid or null if not found
+	 */
+	private static String getSetsid()
+	{
+		final String path = System.getenv( "PATH" );
+		if( path != null )
+		{
+			for( final String dir: path.split( File.pathSeparator ) )
+			{
+				final File setsid = new File( dir, "setsid" );
+				if( setsid.canExecute() )
+				{
+					return setsid.getAbsolutePath();
+				}
+			}
+		}
+		return null;
 	}
 
-	public static void submit( final String[] args ) throws Exception
+	/**
+	 * Kill the process and, if it was started with setsid, every process in its process group.
+	 * @param p
+	 */
+	private static void kill( final Process p )
 	{
-		new ProcessUtil( args );
+		final long pid = getPid( p );
+		if( ( SETSID != null ) && ( pid > 0 ) )
+		{
+			try
+			{
+				new ProcessBuilder( "kill", "-KILL", "--", "-" + pid ).start().waitFor();
+			}
+			catch( final Exception ex )
+			{
+				log.error( "[ProcessUtil] Unable to kill process group: " + pid, ex );
+			}
+		}
+		p.destroyForcibly();
+	}
+
+	/**
+	 * Start the process, drain stdout & stderr on separate threads, and wait for it to exit.
+	 * @param args
+	 * @param timeoutSeconds
+	 * @param saveOutput
+	 * @param checkExitCode
+	 * @return
+	 * @throws Exception
+	 */
+	private static List<String> run( final String[] args, final long timeoutSeconds, final boolean saveOutput,
+			final boolean checkExitCode ) throws Exception
+	{
+		final String cmd = String.join( " ", args );
+		log.info( "[ProcessUtil] EXECUTE: " + cmd );
+
+		final List<String> output = saveOutput ? Collections.synchronizedList( new ArrayList<>() ): null;
+		Process p = null;
+		try
+		{
+			final List<String> cmdArgs = new ArrayList<>();
+			if( SETSID != null )
+			{
+				cmdArgs.add( SETSID );
+			}
+			cmdArgs.addAll( Arrays.asList( args ) );
+			p = new ProcessBuilder( cmdArgs ).start();
+		}
+		catch( final Exception ex )
+		{
+			log.error( "[ProcessUtil] Unable to execute: " + cmd, ex );
+			throw ex;
+		}
+
+		p.getOutputStream().close();
+		final Future<?> stdout = drain( p.getInputStream(), "[ProcessUtil] ", output );
+		final Future<?> stderr = drain( p.getErrorStream(), "[ProcessUtil] [stderr] ", null );
+
+		if( timeoutSeconds > 0 )
+		{
+			if( !p.waitFor( timeoutSeconds, TimeUnit.SECONDS ) )
+			{
+				kill( p );
+				throw new Exception( "[ProcessUtil] Timeout after " + timeoutSeconds + " seconds: " + cmd );
+			}
+		}
+		else
+		{
+			p.waitFor();
+		}
+
+		stdout.get();
+		stderr.get();
+		p.destroy();
+
+		if( ( p.exitValue() != 0 ) && checkExitCode )
+		{
+			throw new Exception( "[ProcessUtil] Exit code " + p.exitValue() + ": " + cmd );
+		}
+		else if( p.exitValue() != 0 )
+		{
+			log.warn( "[ProcessUtil] Exit code " + p.exitValue() + ": " + cmd );
+		}
+
+		return ( output == null ) ? new ArrayList<>(): output;
 	}
 }
@@ -0,0 +1,234 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Aug 16, 2017
+ * @disclaimer 	This code is free software; you can redistribute it and/or
+ * 				modify it under the terms of the GNU General Public License
+ * 				as published by the Free Software Foundation; either version 2
+ * 				of the License, or (at your option) any later version,
+ * 				provided that any use properly credits the author.
+ * 				This program is distributed in the hope that it will be useful,
+ * 				but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 				MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * 				GNU General Public License for more details at http://www.gnu.org *
+ */
+package bioLockJ.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+import org.apache.commons.io.input.CountingInputStream;
+import bioLockJ.BioLockJ;
+
+/**
+ * ProgressTracker reports the progress of a long running Module loop.  The loop calls
+ * addRecords() for each record processed, and bytes are counted by the stream opened by
+ * BioLockJ.getFileReader() while a tracker is running, so byte progress is known even inside a
+ * single large file.  Every project.progressSeconds (default 30) a log line with # files,
+ * records, MB, throughput, % complete & ETA is output, and the same values are appended to
+ * <project>_progress.tsv in the project dir so it can be tailed by external tools.
+ *
+ * addRecords() only increments a counter.  The clock is read once every "stride" records, and the
+ * stride is adjusted so the clock is read about 10 times per second.
+ */
+public class ProgressTracker extends BioLockJ
+{
+	private static final long CHECK_MS = 100L;
+	private static volatile ProgressTracker current = null;
+	private static final int DEFAULT_SECONDS = 30;
+	private static final double MB = 1024.0 * 1024.0;
+	private long completedBytes = 0L;
+	private long lastCheck;
+	private final String module;
+	private final String name;
+	private long nextCheck = 1L;
+	private long nextReport;
+	private int numFiles = 0;
+	private long records = 0L;
+	private final long reportMs;
+	private final long startTime;
+	private CountingInputStream stream = null;
+	private long stride = 1L;
+	private final long totalBytes;
+	private final int totalFiles;
+
+	private ProgressTracker( final String name, final int totalFiles, final long totalBytes ) throws Exception
+	{
+		final Integer seconds = getPositiveInteger( PROJECT_PROGRESS_SECONDS );
+		this.name = name;
+		this.totalFiles = totalFiles;
+		this.totalBytes = totalBytes;
+		module = MetricsUtil.getCurrentModule();
+		reportMs = 1000L * ( ( seconds == null ) ? DEFAULT_SECONDS: seconds );
+		startTime = System.currentTimeMillis();
+		lastCheck = startTime;
+		nextReport = startTime + reportMs;
+	}
+
+	/**
+	 * Get the running tracker (if any).
+	 * @return
+	 */
+	public static ProgressTracker getCurrent()
+	{
+		return current;
+	}
+
+	/**
+	 * Start tracking progress over the given files.  Only one tracker runs at a time, so a running
+	 * tracker is finished first.
+	 * @param name - description of the work, such as "Trim primers"
+	 * @param files - files to process, used to calculate % complete
+	 * @return
+	 * @throws Exception
+	 */
+	public static ProgressTracker start( final String name, final List<File> files ) throws Exception
+	{
+		if( current != null )
+		{
+			current.finish();
+		}
+
+		long bytes = 0L;
+		for( final File f: files )
+		{
+			bytes += f.length();
+		}
+
+		current = new ProgressTracker( name, files.size(), bytes );
+		return current;
+	}
+
+	/**
+	 * Add to the # records processed.
+	 * @param n
+	 */
+	public void addRecords( final long n )
+	{
+		records += n;
+		if( records >= nextCheck )
+		{
+			check();
+		}
+	}
+
+	/**
+	 * Log the final totals & stop tracking.
+	 */
+	public void finish()
+	{
+		if( current == this )
+		{
+			current = null;
+		}
+
+		if( stream != null )
+		{
+			completedBytes += stream.getByteCount();
+			stream = null;
+		}
+
+		report( System.currentTimeMillis(), true );
+		MetricsUtil.count( MetricsUtil.RECORDS_PROCESSED, records );
+	}
+
+	/**
+	 * Called by BioLockJ.getFileReader() so bytes read from the file are counted.
+	 * @param in
+	 */
+	public void track( final CountingInputStream in )
+	{
+		if( stream != null )
+		{
+			completedBytes += stream.getByteCount();
+		}
+		stream = in;
+		numFiles++;
+		check();
+	}
+
+	/**
+	 * Read the clock and report if the interval has passed.  Adjust the stride to the rate
+	 * records are added.
+	 */
+	private void check()
+	{
+		final long now = System.currentTimeMillis();
+		final long elapsed = now - lastCheck;
+		if( elapsed < CHECK_MS )
+		{
+			stride *= 2;
+		}
+		else if( ( elapsed > ( 10 * CHECK_MS ) ) && ( stride > 1 ) )
+		{
+			stride /= 2;
+		}
+
+		lastCheck = now;
+		nextCheck = records + stride;
+		if( now >= nextReport )
+		{
+			nextReport = now + reportMs;
+			report( now, false );
+		}
+	}
+
+	private long getBytes()
+	{
+		return completedBytes + ( ( stream == null ) ? 0L: stream.getByteCount() );
+	}
+
+	private String getTime( final long seconds )
+	{
+		return String.format( "%02d:%02d:%02d", seconds / 3600, ( seconds % 3600 ) / 60, seconds % 60 );
+	}
+
+	/**
+	 * Log the progress & append it to the status file.  Bytes are used for % complete, since the
+	 * total # records is not known in advance.
+	 * @param now
+	 * @param done
+	 */
+	private void report( final long now, final boolean done )
+	{
+		final long bytes = getBytes();
+		final double seconds = Math.max( 1L, now - startTime ) / 1000.0;
+		final double pct = done ? 1.0: ( totalBytes > 0 ) ? Math.min( 1.0, (double) bytes / totalBytes ): 0.0;
+		final long eta = ( pct > 0.0 ) ? Math.round( ( seconds * ( 1.0 - pct ) ) / pct ): -1L;
+
+		log.info( String.format( "[%s] %s: %d/%d files, %d records (%.0f/sec), %.1f/%.1f MB (%.1f MB/sec), %.1f%% %s",
+				module, name, numFiles, totalFiles, records, records / seconds, bytes / MB, totalBytes / MB,
+				( bytes / MB ) / seconds, 100.0 * pct,
+				done ? "done in " + getTime( Math.round( seconds ) ): ( eta < 0 ) ? "": "ETA " + getTime( eta ) ) );
+
+		try
+		{
+			final File status = new File( requireString( ROOT_DIR ) + requireString( PROJECT_NAME ) + "_progress.tsv" );
+			final boolean isNew = !status.exists();
+			final BufferedWriter writer = new BufferedWriter( new FileWriter( status, true ) );
+			try
+			{
+				if( isNew )
+				{
+					writer.write( "time" + DELIM + "module" + DELIM + "task" + DELIM + "files" + DELIM + "totalFiles"
+							+ DELIM + "records" + DELIM + "bytes" + DELIM + "totalBytes" + DELIM + "recordsPerSec"
+							+ DELIM + "bytesPerSec" + DELIM + "percent" + DELIM + "etaSeconds" + DELIM + "status\n" );
+				}
+				writer.write( now + DELIM + module + DELIM + name + DELIM + numFiles + DELIM + totalFiles + DELIM
+						+ records + DELIM + bytes + DELIM + totalBytes + DELIM + Math.round( records / seconds )
+						+ DELIM + Math.round( bytes / seconds ) + DELIM + String.format( "%.1f", 100.0 * pct )
+						+ DELIM + eta + DELIM + ( done ? "DONE": "RUNNING" ) + "\n" );
+			}
+			finally
+			{
+				writer.close();
+			}
+		}
+		catch( final Exception ex )
+		{
+			log.warn( "Unable to update progress file: " + ex.getMessage() );
+		}
+	}
+}